@@ -9,6 +9,7 @@
  */
 
 import java.io.*;
+import java.util.Arrays;
 
 import grid.*;
 import solver.*;
@@ -35,6 +36,38 @@ public class RmitSudoku
      * @param args the command line arguments
      */
     public static void main(String[] args) {
+        // subcommands
+        if (args.length > 0 && args[0].equals("batch")) {
+            SudokuBatch.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("generate")) {
+            SudokuGenerate.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("convert")) {
+            SudokuConvert.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("validate")) {
+            SudokuValidate.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("server")) {
+            try {
+                SudokuServer.run(Arrays.copyOfRange(args, 1, args.length));
+            }
+            catch (IOException e) {
+                System.err.println("IOExeption occurred. " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("count")) {
+            count(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         // read command line arguments
 	    if (args.length < 4) {
 	        System.err.println("Incorrect number of arguments.\n");
@@ -67,21 +100,7 @@ public class RmitSudoku
         SudokuSolver solver = null;
         SudokuGrid grid = null;
         // used to return constructed solver and grid
-        SolverGridPair pair = new SolverGridPair();
-
-        // which type of game?
-        // construct corresponding grid and solver
-        switch (gameType) {
-            case "sudoku":
-                initSudokuSolver(solverType, pair);
-                break;
-            case "killer":
-                initKillerSolver(solverType, pair);
-                break;
-            default:
-                System.err.println("Unknown game type specified.\n");
-                usage(progName);
-        }
+        SolverGridPair pair = createSolverGridPair(gameType, solverType);
 
         // retrieve constructed grid and pair
         grid = pair.grid;
@@ -124,9 +143,10 @@ public class RmitSudoku
                 System.out.println(grid);
             }
 
-            // display time taken
+            // display time taken and the work counters of the solver
             System.out.println("time taken = "
-                + ((double)(endTime - startTime)) / Math.pow(10, 9) + " sec.\n");
+                + ((double)(endTime - startTime)) / Math.pow(10, 9) + " sec.");
+            System.out.println(solver.getStats() + "\n");
 
 
             // Check and validate solution
@@ -152,6 +172,53 @@ public class RmitSudoku
         }
     } // end of main()
 
+    /**
+     * Runs the count subcommand: counts the solutions of a grid up to a limit
+     * (2 by default), which tells if the puzzle has a unique solution.
+     *
+     * @param args [grid fileName] [game type] [solver type] <limit>
+     */
+    static void count(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Incorrect number of arguments.\n");
+            usage(progName);
+        }
+        int limit = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+        SolverGridPair pair = createSolverGridPair(args[1], args[2]);
+        try {
+            pair.grid.initGrid(args[0]);
+
+            long startTime = System.nanoTime();
+            int solutions = pair.solver.countSolutions(pair.grid, limit);
+            long endTime = System.nanoTime();
+
+            System.out.println("solutions = " + solutions + (solutions >= limit ? " or more" : ""));
+            if (solutions == 0) {
+                System.out.println("No solution.");
+            }
+            else if (solutions > 1) {
+                System.out.println("Multiple solutions.");
+            }
+            else if (limit > 1) {
+                System.out.println("Unique solution.");
+            }
+            else {
+                System.out.println("Solution found.");
+            }
+            System.out.println("time taken = "
+                + ((double)(endTime - startTime)) / Math.pow(10, 9) + " sec.");
+            System.out.println(pair.solver.getStats());
+        }
+        catch (IOException e) {
+            System.err.println("IOExeption occurred. " + e.getMessage());
+        }
+        catch (UnsupportedOperationException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    } // end of count()
+
     /* ************************************************* */
 
     /**
@@ -162,15 +229,69 @@ public class RmitSudoku
     public static void usage(String progName) {
 
         System.err.println(progName + ": [grid fileName] [game type] [solver type] [visualisation] <output filename>");
+        System.err.println(progName + " batch [game type] [solver type] [threads] [output dir] [files or dirs]...");
+        System.err.println(progName + " count [grid fileName] [game type] [solver type] <limit>");
+        System.err.println(progName + " generate [grid size] [count] [threads] [output file] <seed>");
+        System.err.println(progName + " convert [input file] [output file]");
+        System.err.println(progName + " validate [game type] [threads] [output dir] [files or dirs]...");
+        System.err.println(progName + " server [port] <warm up: y | n> <timeout ms>");
         System.err.println("[game type] = {sudoku | killer}");
-        System.err.println("[solver type] (for Sudoku) = {backtracking | algorx | dancing}");
-        System.err.println("[solver type] (for Killer Sudoku) = {backtracking | advanced}");
+        System.err.println("[solver type] (for Sudoku) = {backtracking | algorx | dancing | parallel | portfolio}");
+        System.err.println("[solver type] (for Killer Sudoku) = {backtracking | advanced | dancing | parallel | portfolio}");
         System.err.println("<visualisation> = <y | n>");
 
 	    System.exit(1);
     } // end of usage()
 
 
+    /**
+     * Construct the grid and solver for a game and solver type.
+     *
+     * @param gameType Type of game, sudoku or killer.
+     * @param solverType Type of solver we want to use and construct.
+     *
+     * @return The constructed grid and solver.
+     */
+    static SolverGridPair createSolverGridPair(String gameType, String solverType) {
+        SolverGridPair pair = findSolverGridPair(gameType, solverType);
+        if (pair == null) {
+            System.err.println("Unknown game or solver type specified.\n");
+            usage(progName);
+        }
+
+        return pair;
+    } // end of createSolverGridPair()
+
+
+    /**
+     * Construct the grid and solver for a game and solver type, without
+     * exiting on unknown types.
+     *
+     * @param gameType Type of game, sudoku or killer.
+     * @param solverType Type of solver we want to use and construct.
+     *
+     * @return The constructed grid and solver, or null if either type is unknown.
+     */
+    static SolverGridPair findSolverGridPair(String gameType, String solverType) {
+        SolverGridPair pair = new SolverGridPair();
+
+        // which type of game?
+        // construct corresponding grid and solver
+        switch (gameType) {
+            case "sudoku":
+                initSudokuSolver(solverType, pair);
+                break;
+            case "killer":
+                initKillerSolver(solverType, pair);
+                break;
+            default:
+                return null;
+        }
+
+        return pair.solver == null ? null : pair;
+    } // end of findSolverGridPair()
+
+
     /**
      * Contruct appropriate grid and solver for (standard) Sudoku.
      *
@@ -198,9 +319,19 @@ public class RmitSudoku
                 grid = new StdSudokuGrid();
                 solver = new DancingLinksSolver();
                 break;
+            case "parallel":
+                grid = new StdSudokuGrid();
+                solver = new ParallelSolver();
+                break;
+            case "portfolio":
+                // races the sequential solvers, first answer wins
+                grid = new StdSudokuGrid();
+                solver = new PortfolioSolver(new BackTrackingSolver(), new DancingLinksSolver(),
+                    new AlgorXSolver());
+                break;
             default:
-                System.err.println("Unknown solver type specified.\n");
-                usage(progName);
+                // unknown solver type, leaves the pair empty
+                break;
         }
 
         pair.grid = grid;
@@ -231,9 +362,23 @@ public class RmitSudoku
                 grid = new KillerSudokuGrid();
                 solver = new KillerAdvancedSolver();
                 break;
+            case "dancing":
+                grid = new KillerSudokuGrid();
+                solver = new KillerDancingLinksSolver();
+                break;
+            case "parallel":
+                grid = new KillerSudokuGrid();
+                solver = new ParallelSolver();
+                break;
+            case "portfolio":
+                // races the sequential solvers, first answer wins
+                grid = new KillerSudokuGrid();
+                solver = new PortfolioSolver(new KillerAdvancedSolver(), new KillerDancingLinksSolver(),
+                    new KillerBackTrackingSolver());
+                break;
             default:
-                System.err.println("Unknown solver type specified.\n");
-                usage(progName);
+                // unknown solver type, leaves the pair empty
+                break;
         }
 
         pair.grid = grid;
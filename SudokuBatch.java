@@ -0,0 +1,474 @@
+/*
+ * Batch mode of RmitSudoku: solves many puzzle files in one JVM.
+ */
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import grid.*;
+import solver.*;
+
+
+/**
+ * Solves a list of puzzle files (or every .in and .sdm file of a directory) on
+ * a fixed thread pool.  Each worker thread constructs its own solver once and
+ * reuses it for every puzzle it picks up.  The solution of a .in file is
+ * written to [output dir]/[puzzle name].exp, while a .sdm file (one puzzle per
+ * line, see PuzzleStreamReader) is streamed through memory-mapped reads and
+ * its solutions are written line by line to [output dir]/[name].sdm.  One
+ * summary line is printed per puzzle, in input order.  Latency and search
+ * node histograms of all solves, with the totals of the solvers' work
+ * counters, are written to [output dir]/metrics.prom in the Prometheus text
+ * format.
+ *
+ * --timeout=[ms] and --nodes=[count] bound every solve, so a pathological
+ * puzzle cannot hold a worker; it is reported as "timed out" and the worker
+ * moves on to the next puzzle.  With --packed the solutions of a .sdm file go
+ * to [output dir]/[name].sdb in the packed binary format instead, see
+ * PackedGridWriter.  With --dump=[file] the solutions of the .in files are
+ * appended to that one file, each after a "# [puzzle file]" line, instead of
+ * one .exp file per puzzle.
+ *
+ * Output goes through GridOutputWriter, which formats the grids into one
+ * buffer per file, and the summary lines are buffered as well, so a run over
+ * many small puzzles is not bound by system calls.
+ */
+public class SudokuBatch
+{
+    /**
+     * Name of the subcommand, used in error messages.
+     */
+    protected static final String cmdName = RmitSudoku.progName + " batch";
+
+    /**
+     * Number of puzzles in flight before their results are collected.
+     */
+    protected static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Name of the metrics file written to the output directory.
+     */
+    protected static final String METRICS_FILE = "metrics.prom";
+
+    /**
+     * Summary lines, flushed when the run is over rather than per line.
+     */
+    private static final PrintStream report = new PrintStream(
+        new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+
+
+    /**
+     * Result of one puzzle: its summary line and, for streamed puzzles, the
+     * line or grid to write to the output stream.
+     */
+    protected static class Result {
+        public String summary;
+        public byte[] line;
+        public int[][] cells;
+        public int[] validNumbers;
+    } // end of class Result
+
+    /**
+     * A submitted puzzle, its label for error messages and, for streamed
+     * puzzles, the unsolved puzzle to write in place of its result if the
+     * solve fails, so the output stays aligned with the input.
+     */
+    protected static class Pending {
+        public String label;
+        public Future<Result> result;
+        public Result unsolved;
+
+        public Pending(String label, Future<Result> result) {
+            this(label, result, null);
+        }
+
+        public Pending(String label, Future<Result> result, Result unsolved) {
+            this.label = label;
+            this.result = result;
+            this.unsolved = unsolved;
+        }
+    } // end of class Pending
+
+
+    /**
+     * Runs the batch subcommand.
+     *
+     * @param args <--timeout=ms> <--nodes=count> <--packed> <--dump=file> [game type] [solver type] [threads] [output dir] [files or dirs]...
+     */
+    public static void run(String[] args) {
+        // leading options, limits of every solve
+        long timeoutMillis = 0;
+        long nodeBudget = 0;
+        boolean bPacked = false;
+        String dumpFilename = null;
+        int first = 0;
+        for (; first < args.length && args[first].startsWith("--"); first++) {
+            String option = args[first];
+            if (option.startsWith("--timeout=")) {
+                timeoutMillis = Long.parseLong(option.substring("--timeout=".length()));
+            }
+            else if (option.startsWith("--nodes=")) {
+                nodeBudget = Long.parseLong(option.substring("--nodes=".length()));
+            }
+            else if (option.equals("--packed")) {
+                bPacked = true;
+            }
+            else if (option.startsWith("--dump=")) {
+                dumpFilename = option.substring("--dump=".length());
+            }
+            else {
+                System.err.println("Unknown option " + option + "\n");
+                usage();
+            }
+        }
+        args = Arrays.copyOfRange(args, first, args.length);
+        if (args.length < 5) {
+            System.err.println("Incorrect number of arguments.\n");
+            usage();
+        }
+
+        String gameType = args[0];
+        String solverType = args[1];
+        int threads = Integer.parseInt(args[2]);
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        File outDir = new File(args[3]);
+        List<File> inputs = collectInputs(Arrays.copyOfRange(args, 4, args.length));
+
+        // check the game and solver type once, before any worker starts
+        RmitSudoku.createSolverGridPair(gameType, solverType);
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            System.err.println("Cannot create output directory " + outDir);
+            System.exit(1);
+        }
+
+        // one solver per worker thread, constructed on first use
+        ThreadLocal<SudokuSolver> solvers = ThreadLocal.withInitial(
+            () -> RmitSudoku.createSolverGridPair(gameType, solverType).solver);
+
+        SolverMetrics metrics = new SolverMetrics();
+        long finalTimeout = timeoutMillis;
+        long finalBudget = nodeBudget;
+        Supplier<SearchLimits> limits = () -> new SearchLimits(finalTimeout, finalBudget);
+        GridOutputWriter dump = null;
+        if (dumpFilename != null) {
+            try {
+                dump = new GridOutputWriter(dumpFilename, false);
+            }
+            catch (IOException e) {
+                System.err.println(cmdName + ": cannot create " + dumpFilename + ": " + e);
+                System.exit(1);
+            }
+        }
+        boolean bDump = dump != null;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long startTime = System.nanoTime();
+        List<Pending> pending = new ArrayList<>();
+        int puzzles = 0;
+        int failed = 0;
+        for (File input : inputs) {
+            if (input.getName().endsWith(".sdm")) {
+                failed += collect(pending, dump, null);
+                try {
+                    int[] counts = bPacked
+                        ? solvePacked(input, gameType, solverType, solvers, outDir, pool, limits, metrics)
+                        : solveStream(input, gameType, solverType, solvers, outDir, pool, limits, metrics);
+                    puzzles += counts[0];
+                    failed += counts[1];
+                }
+                catch (IOException e) {
+                    report.println(input.getPath() + " error " + e);
+                    failed++;
+                }
+            }
+            else {
+                pending.add(new Pending(input.getPath(),
+                    pool.submit(() -> solveOne(input, gameType, solverType, solvers.get(), outDir, bDump, limits, metrics))));
+                puzzles++;
+                if (pending.size() >= BLOCK_SIZE) {
+                    failed += collect(pending, dump, null);
+                }
+            }
+        }
+        failed += collect(pending, dump, null);
+        pool.shutdown();
+        if (dump != null) {
+            try {
+                dump.close();
+            }
+            catch (IOException e) {
+                report.println(dumpFilename + " error " + e);
+                failed++;
+            }
+        }
+        long endTime = System.nanoTime();
+
+        report.println("puzzles = " + puzzles + ", errors = " + failed
+            + ", threads = " + threads + ", time taken = "
+            + ((double)(endTime - startTime)) / Math.pow(10, 9) + " sec.");
+        report.flush();
+
+        File metricsFile = new File(outDir, METRICS_FILE);
+        try {
+            metrics.writeTo(metricsFile.getPath());
+        }
+        catch (IOException e) {
+            System.err.println(cmdName + ": cannot write " + metricsFile + ": " + e);
+        }
+    } // end of run()
+
+
+    /**
+     * Waits for the pending puzzles in order, prints their summary lines and
+     * writes their output lines or solved grids, if any, to out, or their
+     * grids to packedOut.  A puzzle which failed is written unsolved.
+     *
+     * @return Number of puzzles which failed with an exception.
+     */
+    private static int collect(List<Pending> pending, GridOutputWriter out, PackedGridWriter packedOut) {
+        int failed = 0;
+        for (Pending p : pending) {
+            Result result;
+            try {
+                result = p.result.get();
+                report.println(result.summary);
+            }
+            catch (InterruptedException | ExecutionException e) {
+                report.println(p.label + " error " + (e instanceof ExecutionException ? e.getCause() : e));
+                failed++;
+                result = p.unsolved;
+                if (result == null) {
+                    continue;
+                }
+            }
+            try {
+                if (out != null && result.line != null) {
+                    out.writeLine(result.line);
+                }
+                else if (out != null && result.cells != null) {
+                    out.writeLine("# " + p.label);
+                    out.writeGrid(result.cells);
+                }
+                if (packedOut != null) {
+                    packedOut.write(result.cells, result.validNumbers);
+                }
+            }
+            catch (IOException e) {
+                report.println(p.label + " error " + e);
+                failed++;
+            }
+        }
+        pending.clear();
+        return failed;
+    } // end of collect()
+
+
+    /**
+     * Loads, solves, validates and writes out a single puzzle, or with bDump
+     * leaves the solved grid in the result for collect() to append.
+     *
+     * @return Summary line: file, solved/unsolved/timed out, valid/invalid and solve time.
+     */
+    private static Result solveOne(File input, String gameType, String solverType,
+            SudokuSolver solver, File outDir, boolean bDump, Supplier<SearchLimits> limits,
+            SolverMetrics metrics) throws IOException {
+        SudokuGrid grid = newGrid(gameType);
+        grid.initGrid(input.getPath());
+
+        long startTime = System.nanoTime();
+        SolveOutcome outcome = solver.solve(grid, limits.get());
+        long endTime = System.nanoTime();
+        metrics.record(gameType, solverType, outcome, endTime - startTime, solver.getStats());
+        boolean bSolvedSuccess = outcome == SolveOutcome.SOLVED;
+        boolean bValid = bSolvedSuccess && grid.validate();
+
+        String name = input.getName();
+        if (name.endsWith(".in")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        Result result = new Result();
+        if (bSolvedSuccess && bDump) {
+            result.cells = grid.getGrid();
+        }
+        else if (bSolvedSuccess) {
+            grid.outputGrid(new File(outDir, name).getPath());
+        }
+        result.summary = summary(input.getPath(), outcome, bValid, endTime - startTime);
+        return result;
+    } // end of solveOne()
+
+
+    /**
+     * Streams the puzzles of a one-line-per-puzzle file through the pool and
+     * writes the solved grids, in the same order and format, to
+     * [output dir]/[name].sdm.  Unsolved puzzles are written back unchanged.
+     *
+     * @return Number of puzzles read and number of puzzles which failed.
+     */
+    private static int[] solveStream(File input, String gameType, String solverType,
+            ThreadLocal<SudokuSolver> solvers, File outDir, ExecutorService pool,
+            Supplier<SearchLimits> limits, SolverMetrics metrics) throws IOException {
+        if (!gameType.equals("sudoku")) {
+            throw new IOException("the one-line format only holds standard Sudoku");
+        }
+        int puzzles = 0;
+        int failed = 0;
+        try (PuzzleStreamReader reader = new PuzzleStreamReader(input.getPath());
+             GridOutputWriter out = new GridOutputWriter(new File(outDir, input.getName()).getPath(), false)) {
+            List<Pending> pending = new ArrayList<>();
+            byte[] written = PuzzleStreamReader.DEFAULT_ALPHABET.getBytes("US-ASCII");
+            while (reader.next()) {
+                byte[] alphabet = reader.getAlphabet();
+                if (!Arrays.equals(alphabet, written)) {
+                    // results before the header still use the previous alphabet
+                    failed += collect(pending, out, null);
+                    out.writeLine(PuzzleStreamReader.formatHeader(alphabet));
+                    written = alphabet;
+                }
+                StdSudokuGrid grid = new StdSudokuGrid();
+                reader.copyTo(grid);
+                String label = input.getPath() + ":" + reader.getLineNumber();
+                Result unsolved = new Result();
+                unsolved.line = PuzzleStreamReader.formatLine(reader.getCells(), alphabet);
+                pending.add(new Pending(label, pool.submit(() -> {
+                    SudokuSolver solver = solvers.get();
+                    long startTime = System.nanoTime();
+                    SolveOutcome outcome = solver.solve(grid, limits.get());
+                    long endTime = System.nanoTime();
+                    metrics.record(gameType, solverType, outcome, endTime - startTime, solver.getStats());
+                    Result result = new Result();
+                    result.summary = summary(label, outcome,
+                        outcome == SolveOutcome.SOLVED && grid.validate(), endTime - startTime);
+                    result.line = PuzzleStreamReader.formatLine(grid.getGrid(), alphabet);
+                    return result;
+                }), unsolved));
+                puzzles++;
+                if (pending.size() >= BLOCK_SIZE) {
+                    failed += collect(pending, out, null);
+                }
+            }
+            failed += collect(pending, out, null);
+        }
+        return new int[] {puzzles, failed};
+    } // end of solveStream()
+
+
+    /**
+     * Same as solveStream(), but writes the solved grids in the packed binary
+     * format to [output dir]/[name].sdb.
+     *
+     * @return Number of puzzles read and number of puzzles which failed.
+     */
+    private static int[] solvePacked(File input, String gameType, String solverType,
+            ThreadLocal<SudokuSolver> solvers, File outDir, ExecutorService pool,
+            Supplier<SearchLimits> limits, SolverMetrics metrics) throws IOException {
+        if (!gameType.equals("sudoku")) {
+            throw new IOException("the one-line format only holds standard Sudoku");
+        }
+        String name = input.getName();
+        name = name.substring(0, name.length() - ".sdm".length()) + ".sdb";
+        int puzzles = 0;
+        int failed = 0;
+        try (PuzzleStreamReader reader = new PuzzleStreamReader(input.getPath());
+             PackedGridWriter out = new PackedGridWriter(new File(outDir, name).getPath())) {
+            List<Pending> pending = new ArrayList<>();
+            while (reader.next()) {
+                int[] validNumbers = reader.getValidNumbers();
+                StdSudokuGrid grid = new StdSudokuGrid();
+                reader.copyTo(grid);
+                String label = input.getPath() + ":" + reader.getLineNumber();
+                Result unsolved = new Result();
+                unsolved.cells = grid.copy().getGrid();
+                unsolved.validNumbers = validNumbers;
+                pending.add(new Pending(label, pool.submit(() -> {
+                    SudokuSolver solver = solvers.get();
+                    long startTime = System.nanoTime();
+                    SolveOutcome outcome = solver.solve(grid, limits.get());
+                    long endTime = System.nanoTime();
+                    metrics.record(gameType, solverType, outcome, endTime - startTime, solver.getStats());
+                    Result result = new Result();
+                    result.summary = summary(label, outcome,
+                        outcome == SolveOutcome.SOLVED && grid.validate(), endTime - startTime);
+                    result.cells = grid.getGrid();
+                    result.validNumbers = validNumbers;
+                    return result;
+                }), unsolved));
+                puzzles++;
+                if (pending.size() >= BLOCK_SIZE) {
+                    failed += collect(pending, null, out);
+                }
+            }
+            failed += collect(pending, null, out);
+        }
+        return new int[] {puzzles, failed};
+    } // end of solvePacked()
+
+
+    /**
+     * Constructs an empty grid of a game type already checked by
+     * createSolverGridPair(), without also constructing a solver as it does.
+     */
+    private static SudokuGrid newGrid(String gameType) {
+        return gameType.equals("killer") ? new KillerSudokuGrid() : new StdSudokuGrid();
+    } // end of newGrid()
+
+
+    /**
+     * Formats the summary line of one puzzle.
+     */
+    private static String summary(String label, SolveOutcome outcome, boolean bValid, long nanos) {
+        return label + " " + (outcome == SolveOutcome.SOLVED ? "solved"
+                : outcome == SolveOutcome.TIMED_OUT ? "timed out" : "unsolved")
+            + " " + (bValid ? "valid" : "invalid")
+            + " " + ((double)nanos) / Math.pow(10, 6) + " ms";
+    } // end of summary()
+
+
+    /**
+     * Expands the command line inputs, directories contribute their .in and
+     * .sdm files in name order.
+     */
+    private static List<File> collectInputs(String[] paths) {
+        List<File> inputs = new ArrayList<>();
+        for (String path : paths) {
+            File file = new File(path);
+            if (file.isDirectory()) {
+                File[] files = file.listFiles((dir, name) -> name.endsWith(".in") || name.endsWith(".sdm"));
+                if (files != null) {
+                    Arrays.sort(files);
+                    inputs.addAll(Arrays.asList(files));
+                }
+            }
+            else {
+                inputs.add(file);
+            }
+        }
+        return inputs;
+    } // end of collectInputs()
+
+
+    /**
+     * Print help/usage message for the batch subcommand.
+     */
+    public static void usage() {
+        System.err.println(cmdName + ": <--timeout=ms> <--nodes=count> <--packed> <--dump=file> [game type] [solver type] [threads] [output dir] [files or dirs]...");
+        System.err.println("[threads] = number of worker threads, 0 for one per core");
+        System.err.println("--timeout, --nodes = limits of every solve, a puzzle hitting one is reported as timed out");
+        System.err.println("directories are searched for .in and .sdm (one puzzle per line) files");
+        System.err.println("--dump=[file] = append the solutions of .in files to one file instead of a .exp each");
+        System.err.println("--packed = write the solutions of .sdm files to [output dir]/[name].sdb in the packed binary format");
+        System.err.println("histograms of the solves are written to [output dir]/" + METRICS_FILE);
+
+        System.exit(1);
+    } // end of usage()
+
+} // end of class SudokuBatch
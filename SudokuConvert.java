@@ -0,0 +1,106 @@
+/*
+ * Convert mode of RmitSudoku: rewrites a puzzle or solution corpus between
+ * the one-line text format and the packed binary format.
+ */
+
+import java.io.*;
+import java.util.Arrays;
+
+import grid.*;
+
+
+/**
+ * Converts a file of grids between the one-line text format (.sdm, see
+ * PuzzleStreamReader) and the packed binary format (.sdb, see
+ * PackedGridWriter), in either direction as given by the file extensions.
+ * Both sides are streamed, so a corpus of any size converts in constant
+ * memory.  The text format only holds the valid numbers 1..n with n at most
+ * 61, so other alphabets can only be kept packed.
+ */
+public class SudokuConvert
+{
+    /**
+     * Name of the subcommand, used in error messages.
+     */
+    protected static final String cmdName = RmitSudoku.progName + " convert";
+
+
+    /**
+     * Runs the convert subcommand.
+     *
+     * @param args [input file] [output file]
+     */
+    public static void run(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Incorrect number of arguments.\n");
+            usage();
+        }
+        String inFilename = args[0];
+        String outFilename = args[1];
+
+        long startTime = System.nanoTime();
+        long grids = 0;
+        boolean bPackedIn = inFilename.endsWith(".sdb");
+        boolean bPackedOut = outFilename.endsWith(".sdb");
+        try (PuzzleStreamReader textIn = bPackedIn ? null : new PuzzleStreamReader(inFilename);
+             PackedGridReader packedIn = bPackedIn ? new PackedGridReader(inFilename) : null;
+             OutputStream textOut = bPackedOut ? null
+                 : new BufferedOutputStream(new FileOutputStream(outFilename), 1 << 16);
+             PackedGridWriter packedOut = bPackedOut ? new PackedGridWriter(outFilename) : null) {
+            byte[] written = PuzzleStreamReader.DEFAULT_ALPHABET.getBytes("US-ASCII");
+            while (bPackedIn ? packedIn.next() : textIn.next()) {
+                int[][] cells = bPackedIn ? packedIn.getCells() : textIn.getCells();
+                int[] validNumbers = bPackedIn ? packedIn.getValidNumbers() : textIn.getValidNumbers();
+                grids++;
+                if (bPackedOut) {
+                    packedOut.write(cells, validNumbers);
+                    continue;
+                }
+                byte[] alphabet = textAlphabet(validNumbers, grids);
+                if (!Arrays.equals(alphabet, written)) {
+                    textOut.write(PuzzleStreamReader.formatHeader(alphabet));
+                    textOut.write('\n');
+                    written = alphabet;
+                }
+                textOut.write(PuzzleStreamReader.formatLine(cells, alphabet));
+                textOut.write('\n');
+            }
+        }
+        catch (IOException | IllegalArgumentException e) {
+            System.err.println(cmdName + ": " + e.getMessage());
+            System.exit(1);
+        }
+        long endTime = System.nanoTime();
+
+        System.out.println("grids = " + grids + ", bytes in = " + new File(inFilename).length()
+            + ", bytes out = " + new File(outFilename).length() + ", time taken = "
+            + ((double)(endTime - startTime)) / Math.pow(10, 9) + " sec.");
+    } // end of run()
+
+
+    /**
+     * Alphabet of the text format for the valid numbers of a grid, which must
+     * be 1..n.
+     */
+    private static byte[] textAlphabet(int[] validNumbers, long grid) {
+        for (int x = 0; x < validNumbers.length; x++) {
+            if (validNumbers[x] != x + 1) {
+                throw new IllegalArgumentException("grid " + grid
+                    + ": only the valid numbers 1..n can be written as text");
+            }
+        }
+        return PuzzleStreamReader.alphabetFor(validNumbers.length);
+    } // end of textAlphabet()
+
+
+    /**
+     * Print help/usage message for the convert subcommand.
+     */
+    public static void usage() {
+        System.err.println(cmdName + ": [input file] [output file]");
+        System.err.println("files ending in .sdb are in the packed binary format, others one puzzle per line (.sdm)");
+
+        System.exit(1);
+    } // end of usage()
+
+} // end of class SudokuConvert
@@ -0,0 +1,156 @@
+/*
+ * Generate mode of RmitSudoku: writes a corpus of fresh puzzles.
+ */
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import grid.*;
+import solver.*;
+
+
+/**
+ * Generates standard Sudoku puzzles with a unique solution on a fixed thread
+ * pool and streams them to a one-line-per-puzzle (.sdm) file, see
+ * PuzzleStreamReader.  Puzzle i is generated from its own random seed derived
+ * from the base seed, so the same seed always gives the same file whatever
+ * the number of threads.  Each worker thread keeps its own PuzzleGenerator.
+ * An output file named *.sdb is written in the packed binary format instead,
+ * see PackedGridWriter.
+ */
+public class SudokuGenerate
+{
+    /**
+     * Name of the subcommand, used in error messages.
+     */
+    protected static final String cmdName = RmitSudoku.progName + " generate";
+
+    /**
+     * Number of puzzles in flight before they are written out.
+     */
+    protected static final int BLOCK_SIZE = 4096;
+
+
+    /**
+     * Runs the generate subcommand.
+     *
+     * @param args [grid size] [count] [threads] [output file] <seed>
+     */
+    public static void run(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Incorrect number of arguments.\n");
+            usage();
+        }
+
+        int gridSize = Integer.parseInt(args[0]);
+        long count = Long.parseLong(args[1]);
+        int threads = Integer.parseInt(args[2]);
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        String outFilename = args[3];
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+        byte[] alphabet = null;
+        try {
+            new PuzzleGenerator(gridSize);
+            alphabet = PuzzleStreamReader.alphabetFor(gridSize);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(cmdName + ": " + e.getMessage());
+            System.exit(1);
+        }
+
+        // one generator per worker thread, constructed on first use
+        ThreadLocal<PuzzleGenerator> generators = ThreadLocal.withInitial(() -> new PuzzleGenerator(gridSize));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long startTime = System.nanoTime();
+        long clues = 0;
+        boolean bPacked = outFilename.endsWith(".sdb");
+        int[] validNumbers = new int[gridSize];
+        for (int x = 0; x < gridSize; x++) {
+            validNumbers[x] = x + 1;
+        }
+        try (OutputStream out = bPacked ? null : new BufferedOutputStream(new FileOutputStream(outFilename), 1 << 16);
+             PackedGridWriter packedOut = bPacked ? new PackedGridWriter(outFilename) : null) {
+            if (!bPacked && gridSize != PuzzleStreamReader.DEFAULT_ALPHABET.length()) {
+                out.write(PuzzleStreamReader.formatHeader(alphabet));
+                out.write('\n');
+            }
+            List<Future<int[][]>> pending = new ArrayList<>();
+            for (long i = 0; i < count; i++) {
+                Random random = new Random(seed + i * 0x9E3779B97F4A7C15L);
+                pending.add(pool.submit(() -> generators.get().generate(random)));
+                if (pending.size() >= BLOCK_SIZE || i == count - 1) {
+                    clues += write(pending, out, alphabet, packedOut, validNumbers);
+                }
+            }
+        }
+        catch (IOException | InterruptedException | ExecutionException e) {
+            System.err.println(cmdName + ": " + (e instanceof ExecutionException ? e.getCause() : e));
+            System.exit(1);
+        }
+        finally {
+            pool.shutdown();
+        }
+        long endTime = System.nanoTime();
+
+        double seconds = ((double)(endTime - startTime)) / Math.pow(10, 9);
+        System.out.println("puzzles = " + count + ", clues = " + ((double)clues) / Math.max(1, count)
+            + " per puzzle, seed = " + seed + ", threads = " + threads
+            + ", time taken = " + seconds + " sec., " + count / seconds + " puzzles/sec.");
+    } // end of run()
+
+
+    /**
+     * Waits for the pending puzzles in order and writes them to out, or to
+     * packedOut if out is null.
+     *
+     * @return Total number of clues of the puzzles written.
+     */
+    private static long write(List<Future<int[][]>> pending, OutputStream out, byte[] alphabet,
+            PackedGridWriter packedOut, int[] validNumbers)
+            throws IOException, InterruptedException, ExecutionException {
+        long clues = 0;
+        for (Future<int[][]> future : pending) {
+            int[][] puzzle = future.get();
+            for (int[] row : puzzle) {
+                for (int value : row) {
+                    if (value != 0) {
+                        clues++;
+                    }
+                }
+            }
+            if (out != null) {
+                out.write(PuzzleStreamReader.formatLine(puzzle, alphabet));
+                out.write('\n');
+            }
+            else {
+                packedOut.write(puzzle, validNumbers);
+            }
+        }
+        pending.clear();
+        return clues;
+    } // end of write()
+
+
+    /**
+     * Print help/usage message for the generate subcommand.
+     */
+    public static void usage() {
+        System.err.println(cmdName + ": [grid size] [count] [threads] [output file] <seed>");
+        System.err.println("[threads] = number of worker threads, 0 for one per core");
+        System.err.println("puzzles are written one per line (.sdm), each with a unique solution");
+        System.err.println("an [output file] ending in .sdb is written in the packed binary format");
+
+        System.exit(1);
+    } // end of usage()
+
+} // end of class SudokuGenerate
@@ -0,0 +1,386 @@
+/*
+ * Server mode of RmitSudoku: keeps warmed up solvers resident and solves
+ * puzzles sent over HTTP.
+ */
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import grid.*;
+import solver.*;
+
+
+/**
+ * Long running solver service on a local HTTP port.
+ *
+ * POST /solve?game=[game type]&amp;solver=[solver type] with a puzzle in the
+ * input file format as the body.  The reply is plain text: a status line
+ * ("solved valid", "solved invalid", "unsolved" or "timed out"), the solve
+ * time, and the grid in the output file format.  Both parameters are optional
+ * and default to sudoku and dancing.  Every solve is bounded by the server's
+ * timeout, which a request may shorten with timeout=[ms], and optionally by
+ * a node budget, nodes=[count], so one bad puzzle cannot pin a worker.
+ *
+ * Every request runs on its own virtual thread when the JVM supports them
+ * (Java 21 and later), otherwise on a cached thread pool.  Solvers are not
+ * thread safe, so idle solvers are kept in a pool per game and solver type and
+ * borrowed for one request at a time; they are warmed up on generated puzzles
+ * before the server starts accepting requests, so the first requests do not
+ * run in the interpreter.  Standard Sudoku solvers sit behind one shared
+ * canonical-form SolutionCache, so a puzzle equivalent to one solved before
+ * (relabelled, transposed, rows or columns permuted) is a cache lookup.
+ *
+ * GET /metrics returns latency and search node histograms of every request
+ * served, and the totals of the solvers' work counters, in the Prometheus
+ * text format.  The reply of a solve carries its own counters.
+ */
+public class SudokuServer
+{
+    /**
+     * Name of the subcommand, used in error messages.
+     */
+    protected static final String cmdName = RmitSudoku.progName + " server";
+
+    /**
+     * Number of puzzles each standard Sudoku solver solves before the server starts.
+     */
+    protected static final int WARMUP_PUZZLES = 2000;
+
+    /**
+     * Number of solved standard Sudoku kept in the cache.
+     */
+    protected static final int CACHE_CAPACITY = 1 << 16;
+
+    /**
+     * Largest grid size a request may send, the most the solvers support.
+     */
+    protected static final int MAX_GRID_SIZE = 64;
+
+    /**
+     * Longest first line of a request body, which holds the grid size.
+     */
+    private static final int SIZE_LINE_LIMIT = 64;
+
+    /**
+     * Timeout of a solve in milliseconds unless given on the command line.
+     */
+    protected static final long DEFAULT_TIMEOUT = 10000;
+
+    /**
+     * Longest time a solve may take, in milliseconds.
+     */
+    private static long maxTimeout = DEFAULT_TIMEOUT;
+
+    /**
+     * Solutions shared by the standard Sudoku solvers of every request.
+     */
+    private static final SolutionCache cache = new SolutionCache(CACHE_CAPACITY);
+
+    /**
+     * Histograms of the solves served, warm up excluded.
+     */
+    private static final SolverMetrics metrics = new SolverMetrics();
+
+    /**
+     * Idle solvers by "game/solver" key.
+     */
+    private static final Map<String, ConcurrentLinkedQueue<SudokuSolver>> idleSolvers
+        = new ConcurrentHashMap<>();
+
+
+    /**
+     * Runs the server subcommand.
+     *
+     * @param args [port] <warm up: y | n> <timeout ms>
+     */
+    public static void run(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Incorrect number of arguments.\n");
+            usage();
+        }
+        int port = Integer.parseInt(args[0]);
+        boolean bWarmUp = args.length < 2 || args[1].equals("y");
+        if (args.length > 2) {
+            maxTimeout = Long.parseLong(args[2]);
+        }
+
+        if (bWarmUp) {
+            long startTime = System.nanoTime();
+            warmUp();
+            long endTime = System.nanoTime();
+            System.out.println("warm up time taken = "
+                + ((double)(endTime - startTime)) / Math.pow(10, 9) + " sec.");
+        }
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/solve", SudokuServer::handleSolve);
+        server.createContext("/metrics", SudokuServer::handleMetrics);
+        ExecutorService executor = requestExecutor();
+        server.setExecutor(executor);
+        server.start();
+        System.out.println(cmdName + " listening on " + server.getAddress()
+            + " (" + (isVirtual(executor) ? "virtual threads" : "thread pool") + ")");
+    } // end of run()
+
+
+    /**
+     * Executor for the requests: one virtual thread per request if the JVM has
+     * them, looked up reflectively so the server still builds and runs on
+     * older JDKs.
+     */
+    static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    } // end of requestExecutor()
+
+
+    private static boolean isVirtual(ExecutorService executor) {
+        return !executor.getClass().getName().contains("ThreadPoolExecutor");
+    } // end of isVirtual()
+
+
+    /**
+     * Solves generated puzzles with every standard Sudoku solver so their code
+     * is compiled before the first request.  The solvers are wrapped in a
+     * cache which keeps nothing, so every puzzle is really solved.
+     */
+    private static void warmUp() {
+        PuzzleGenerator generator = new PuzzleGenerator(9);
+        Random random = new Random(0);
+        int[][][] puzzles = new int[64][][];
+        for (int x = 0; x < puzzles.length; x++) {
+            puzzles[x] = generator.generate(random);
+        }
+        int[] validNumbers = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+        for (String solverType : new String[] {"backtracking", "algorx", "dancing", "parallel"}) {
+            SudokuSolver solver = new CachingSolver(
+                RmitSudoku.findSolverGridPair("sudoku", solverType).solver, new SolutionCache(0));
+            for (int x = 0; x < WARMUP_PUZZLES; x++) {
+                StdSudokuGrid grid = new StdSudokuGrid();
+                grid.initGrid(9, validNumbers);
+                grid.setGrid(puzzles[x % puzzles.length]);
+                solver.solve(grid);
+            }
+        }
+    } // end of warmUp()
+
+
+    /**
+     * Handles POST /solve.
+     */
+    private static void handleSolve(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                reply(exchange, 405, "use POST with the puzzle as the body\n");
+                return;
+            }
+            Map<String, String> params = queryParams(exchange.getRequestURI().getRawQuery());
+            String gameType = params.getOrDefault("game", "sudoku");
+            String solverType = params.getOrDefault("solver", "dancing");
+            long timeoutMillis;
+            long nodeBudget;
+            try {
+                timeoutMillis = Long.parseLong(params.getOrDefault("timeout", "0"));
+                nodeBudget = Long.parseLong(params.getOrDefault("nodes", "0"));
+            }
+            catch (NumberFormatException e) {
+                reply(exchange, 400, "timeout and nodes must be whole numbers\n");
+                return;
+            }
+            if (timeoutMillis <= 0 || (maxTimeout > 0 && timeoutMillis > maxTimeout)) {
+                timeoutMillis = maxTimeout;
+            }
+            RmitSudoku.SolverGridPair pair = RmitSudoku.findSolverGridPair(gameType, solverType);
+            if (pair == null) {
+                reply(exchange, 400, "unknown game or solver type\n");
+                return;
+            }
+
+            SudokuGrid grid = pair.grid;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.US_ASCII))) {
+                if (!validGridSize(reader)) {
+                    reply(exchange, 400, "grid size must be a square of at most " + MAX_GRID_SIZE + "\n");
+                    return;
+                }
+                grid.initGrid(reader);
+            }
+            catch (RuntimeException e) {
+                reply(exchange, 400, "malformed puzzle: " + e + "\n");
+                return;
+            }
+
+            SudokuSolver solver = borrow(gameType, solverType);
+            long startTime = System.nanoTime();
+            SolveOutcome outcome;
+            String stats;
+            try {
+                outcome = solver.solve(grid, new SearchLimits(timeoutMillis, nodeBudget));
+                long endTime = System.nanoTime();
+                metrics.record(gameType, solverType, outcome, endTime - startTime, solver.getStats());
+                stats = "time taken = " + ((double)(endTime - startTime)) / Math.pow(10, 6) + " ms\n"
+                    + solver.getStats() + "\n";
+            }
+            finally {
+                giveBack(gameType, solverType, solver);
+            }
+            boolean bSolvedSuccess = outcome == SolveOutcome.SOLVED;
+            boolean bValid = bSolvedSuccess && grid.validate();
+
+            StringBuilder body = new StringBuilder();
+            body.append(bSolvedSuccess ? (bValid ? "solved valid" : "solved invalid")
+                : outcome == SolveOutcome.TIMED_OUT ? "timed out" : "unsolved").append('\n');
+            body.append(stats);
+            if (bSolvedSuccess) {
+                appendGrid(body, grid.getGrid());
+            }
+            reply(exchange, 200, body.toString());
+        }
+        catch (RuntimeException e) {
+            reply(exchange, 500, "error: " + e + "\n");
+        }
+    } // end of handleSolve()
+
+
+    /**
+     * Checks the grid size on the first line of a puzzle body, and leaves the
+     * reader at the start of the body, so a request cannot make the grid
+     * allocate an arbitrarily large array.
+     *
+     * @return True if the size is a square of at most MAX_GRID_SIZE.
+     */
+    private static boolean validGridSize(BufferedReader reader) throws IOException {
+        reader.mark(SIZE_LINE_LIMIT + 2);
+        String line = reader.readLine();
+        // a longer line is no size and the mark would be lost
+        if (line == null || line.length() > SIZE_LINE_LIMIT) {
+            return false;
+        }
+        reader.reset();
+        int size;
+        try {
+            size = Integer.parseInt(line.trim());
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+        int boxSize = (int)Math.sqrt(size);
+        return size > 0 && size <= MAX_GRID_SIZE && boxSize * boxSize == size;
+    } // end of validGridSize()
+
+
+    /**
+     * Handles GET /metrics.
+     */
+    private static void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            reply(exchange, 405, "use GET\n");
+            return;
+        }
+        reply(exchange, 200, metrics.toPrometheus());
+    } // end of handleMetrics()
+
+
+    /**
+     * Takes an idle solver of the given type from the pool, or constructs one.
+     */
+    private static SudokuSolver borrow(String gameType, String solverType) {
+        SudokuSolver solver = idleSolvers
+            .computeIfAbsent(gameType + "/" + solverType, key -> new ConcurrentLinkedQueue<>())
+            .poll();
+        if (solver == null) {
+            solver = RmitSudoku.findSolverGridPair(gameType, solverType).solver;
+            if (gameType.equals("sudoku")) {
+                solver = new CachingSolver(solver, cache);
+            }
+        }
+        return solver;
+    } // end of borrow()
+
+
+    /**
+     * Returns a solver to the pool once its request is done.
+     */
+    private static void giveBack(String gameType, String solverType, SudokuSolver solver) {
+        idleSolvers.get(gameType + "/" + solverType).offer(solver);
+    } // end of giveBack()
+
+
+    /**
+     * Appends a grid in the output file format, comma separated rows.
+     */
+    private static void appendGrid(StringBuilder body, int[][] grid) {
+        for (int[] row : grid) {
+            for (int y = 0; y < row.length; y++) {
+                if (y > 0) {
+                    body.append(',');
+                }
+                body.append(row[y]);
+            }
+            body.append('\n');
+        }
+    } // end of appendGrid()
+
+
+    /**
+     * Parses the query string of a request.
+     */
+    private static Map<String, String> queryParams(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (String param : query.split("&")) {
+            int eq = param.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(param.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    } // end of queryParams()
+
+
+    /**
+     * Sends a plain text reply and closes the exchange.
+     */
+    private static void reply(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    } // end of reply()
+
+
+    /**
+     * Print help/usage message for the server subcommand.
+     */
+    public static void usage() {
+        System.err.println(cmdName + ": [port] <warm up: y | n> <timeout ms>");
+        System.err.println("POST /solve?game=[game type]&solver=[solver type]&timeout=[ms]&nodes=[count] with the puzzle file as the body");
+        System.err.println("<timeout ms> = longest a solve may take, " + DEFAULT_TIMEOUT + " by default, 0 for no limit");
+        System.err.println("GET /metrics for histograms of the solves in the Prometheus text format");
+
+        System.exit(1);
+    } // end of usage()
+
+} // end of class SudokuServer
@@ -0,0 +1,318 @@
+/*
+ * Validate mode of RmitSudoku: checks a corpus of solutions against their
+ * puzzles in one JVM.
+ */
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import grid.*;
+
+
+/**
+ * Checks the solutions written by the batch subcommand, or by anything else
+ * using the same formats, on a fixed thread pool.  The solution of
+ * [puzzle name].in is read from [output dir]/[puzzle name].exp and the
+ * solutions of a .sdm file from [output dir]/[name].sdm, line by line.  A
+ * solution is valid when GridValidator accepts it (every row, column, box and
+ * Killer cage, cage totals included) and it keeps every clue of its puzzle.
+ *
+ * Only the puzzles which fail are printed, as "invalid", "missing" or
+ * "malformed", followed by one summary line; the exit status is 1 unless every
+ * solution is valid.  The lines of a .sdm file are checked in blocks of
+ * BLOCK_SIZE per task, with one validator per alphabet shared by the blocks.
+ */
+public class SudokuValidate
+{
+    /**
+     * Name of the subcommand, used in error messages.
+     */
+    protected static final String cmdName = RmitSudoku.progName + " validate";
+
+    /**
+     * Number of one-line puzzles checked by one task.
+     */
+    protected static final int BLOCK_SIZE = 4096;
+
+
+    /**
+     * Counts of one puzzle file and the lines to print for its failures.
+     */
+    protected static class Result {
+        public int puzzles, valid, invalid, missing;
+        public List<String> failures = new ArrayList<>();
+
+        public void add(Result other) {
+            puzzles += other.puzzles;
+            valid += other.valid;
+            invalid += other.invalid;
+            missing += other.missing;
+            failures.addAll(other.failures);
+        }
+    } // end of class Result
+
+
+    /**
+     * Runs the validate subcommand.
+     *
+     * @param args [game type] [threads] [output dir] [files or dirs]...
+     */
+    public static void run(String[] args) {
+        if (args.length < 4) {
+            System.err.println("Incorrect number of arguments.\n");
+            usage();
+        }
+
+        String gameType = args[0];
+        if (!gameType.equals("sudoku") && !gameType.equals("killer")) {
+            System.err.println("Unknown game type " + gameType + "\n");
+            usage();
+        }
+        int threads = Integer.parseInt(args[1]);
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        File outDir = new File(args[2]);
+        List<File> inputs = collectInputs(Arrays.copyOfRange(args, 3, args.length));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long startTime = System.nanoTime();
+        List<Future<Result>> pending = new ArrayList<>();
+        Result total = new Result();
+        for (File input : inputs) {
+            if (input.getName().endsWith(".sdm")) {
+                try {
+                    validateStream(input, gameType, outDir, pool, pending);
+                }
+                catch (IOException e) {
+                    Result result = new Result();
+                    result.puzzles = result.invalid = 1;
+                    result.failures.add(input.getPath() + " malformed " + e.getMessage());
+                    total.add(result);
+                }
+            }
+            else {
+                pending.add(pool.submit(() -> validateOne(input, gameType, outDir)));
+            }
+        }
+        for (Future<Result> result : pending) {
+            try {
+                total.add(result.get());
+            }
+            catch (InterruptedException | ExecutionException e) {
+                System.err.println(cmdName + ": " + (e instanceof ExecutionException ? e.getCause() : e));
+                System.exit(1);
+            }
+        }
+        pool.shutdown();
+        long endTime = System.nanoTime();
+
+        for (String failure : total.failures) {
+            System.out.println(failure);
+        }
+        System.out.println("puzzles = " + total.puzzles + ", valid = " + total.valid
+            + ", invalid = " + total.invalid + ", missing = " + total.missing
+            + ", threads = " + threads + ", time taken = "
+            + ((double)(endTime - startTime)) / Math.pow(10, 9) + " sec.");
+        if (total.valid != total.puzzles) {
+            System.exit(1);
+        }
+    } // end of run()
+
+
+    /**
+     * Checks the .exp solution of a single .in puzzle.
+     */
+    private static Result validateOne(File input, String gameType, File outDir) {
+        Result result = new Result();
+        result.puzzles = 1;
+        String name = input.getName();
+        if (name.endsWith(".in")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        File solutionFile = new File(outDir, name + ".exp");
+        if (!solutionFile.isFile()) {
+            result.missing = 1;
+            result.failures.add(input.getPath() + " missing " + solutionFile.getPath());
+            return result;
+        }
+
+        try {
+            SudokuGrid grid = gameType.equals("killer") ? new KillerSudokuGrid() : new StdSudokuGrid();
+            grid.initGrid(input.getPath());
+            int[][] solution = readSolution(solutionFile, grid.getGridSize());
+            boolean bValid = GridValidator.keepsClues(grid.getGrid(), solution);
+            if (bValid) {
+                grid.setGrid(solution);
+                bValid = grid.validate();
+            }
+            if (bValid) {
+                result.valid = 1;
+            }
+            else {
+                result.invalid = 1;
+                result.failures.add(input.getPath() + " invalid " + solutionFile.getPath());
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            result.invalid = 1;
+            result.failures.add(input.getPath() + " malformed " + e.getMessage());
+        }
+        return result;
+    } // end of validateOne()
+
+
+    /**
+     * Reads a grid in the output file format, comma separated rows.
+     */
+    private static int[][] readSolution(File file, int gridSize) throws IOException {
+        int[][] solution = new int[gridSize][];
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            for (int x = 0; x < gridSize; x++) {
+                String line = reader.readLine();
+                if (line == null) {
+                    throw new IOException(file + ": expected " + gridSize + " rows but found " + x);
+                }
+                String[] values = line.split(",");
+                if (values.length != gridSize) {
+                    throw new IOException(file + ": row " + (x + 1) + " has " + values.length + " values");
+                }
+                solution[x] = new int[gridSize];
+                for (int y = 0; y < gridSize; y++) {
+                    solution[x][y] = Integer.parseInt(values[y].trim());
+                }
+            }
+        }
+        return solution;
+    } // end of readSolution()
+
+
+    /**
+     * Reads a one-line-per-puzzle file and its solutions in [output dir]/[name].sdm
+     * in step, and submits their pairs to the pool in blocks.
+     */
+    private static void validateStream(File input, String gameType, File outDir,
+            ExecutorService pool, List<Future<Result>> pending) throws IOException {
+        if (!gameType.equals("sudoku")) {
+            throw new IOException("the one-line format only holds standard Sudoku");
+        }
+        File solutionFile = new File(outDir, input.getName());
+        try (PuzzleStreamReader puzzles = new PuzzleStreamReader(input.getPath());
+             PuzzleStreamReader solutions = solutionFile.isFile()
+                 ? new PuzzleStreamReader(solutionFile.getPath()) : null) {
+            GridValidator validator = null;
+            List<String> labels = new ArrayList<>();
+            List<int[][]> puzzleBlock = new ArrayList<>();
+            List<int[][]> solutionBlock = new ArrayList<>();
+            while (puzzles.next()) {
+                String label = input.getPath() + ":" + puzzles.getLineNumber();
+                int[][] solution = null;
+                if (solutions != null && solutions.next()) {
+                    if (validator == null || validator.getSize() != solutions.getGridSize()) {
+                        // a new alphabet ends the block, its puzzles keep their validator
+                        submitBlock(pool, pending, validator, labels, puzzleBlock, solutionBlock);
+                        validator = new GridValidator(solutions.getGridSize(),
+                            new SymbolTable(solutions.getValidNumbers()), null);
+                    }
+                    solution = copyOf(solutions.getCells());
+                }
+                labels.add(label);
+                puzzleBlock.add(copyOf(puzzles.getCells()));
+                solutionBlock.add(solution);
+                if (labels.size() >= BLOCK_SIZE) {
+                    submitBlock(pool, pending, validator, labels, puzzleBlock, solutionBlock);
+                }
+            }
+            submitBlock(pool, pending, validator, labels, puzzleBlock, solutionBlock);
+        }
+    } // end of validateStream()
+
+
+    /**
+     * Submits the puzzles collected so far as one task and starts a new block.
+     */
+    private static void submitBlock(ExecutorService pool, List<Future<Result>> pending,
+            GridValidator validator, List<String> labels, List<int[][]> puzzleBlock,
+            List<int[][]> solutionBlock) {
+        if (labels.isEmpty()) {
+            return;
+        }
+        String[] blockLabels = labels.toArray(new String[0]);
+        int[][][] blockPuzzles = puzzleBlock.toArray(new int[0][][]);
+        int[][][] blockSolutions = solutionBlock.toArray(new int[0][][]);
+        labels.clear();
+        puzzleBlock.clear();
+        solutionBlock.clear();
+        pending.add(pool.submit(() -> {
+            Result result = new Result();
+            for (int x = 0; x < blockLabels.length; x++) {
+                result.puzzles++;
+                if (blockSolutions[x] == null) {
+                    result.missing++;
+                    result.failures.add(blockLabels[x] + " missing");
+                }
+                else if (GridValidator.keepsClues(blockPuzzles[x], blockSolutions[x])
+                        && validator.validate(blockSolutions[x])) {
+                    result.valid++;
+                }
+                else {
+                    result.invalid++;
+                    result.failures.add(blockLabels[x] + " invalid");
+                }
+            }
+            return result;
+        }));
+    } // end of submitBlock()
+
+
+    private static int[][] copyOf(int[][] cells) {
+        int[][] copy = new int[cells.length][];
+        for (int x = 0; x < cells.length; x++) {
+            copy[x] = cells[x].clone();
+        }
+        return copy;
+    } // end of copyOf()
+
+
+    /**
+     * Expands the command line inputs, directories contribute their .in and
+     * .sdm files in name order.
+     */
+    private static List<File> collectInputs(String[] paths) {
+        List<File> inputs = new ArrayList<>();
+        for (String path : paths) {
+            File file = new File(path);
+            if (file.isDirectory()) {
+                File[] files = file.listFiles((dir, name) -> name.endsWith(".in") || name.endsWith(".sdm"));
+                if (files != null) {
+                    Arrays.sort(files);
+                    inputs.addAll(Arrays.asList(files));
+                }
+            }
+            else {
+                inputs.add(file);
+            }
+        }
+        return inputs;
+    } // end of collectInputs()
+
+
+    /**
+     * Print help/usage message for the validate subcommand.
+     */
+    public static void usage() {
+        System.err.println(cmdName + ": [game type] [threads] [output dir] [files or dirs]...");
+        System.err.println("[threads] = number of worker threads, 0 for one per core");
+        System.err.println("the solution of name.in is read from [output dir]/name.exp, those of name.sdm from [output dir]/name.sdm");
+        System.err.println("only failing puzzles are printed, the exit status is 1 unless every solution is valid");
+
+        System.exit(1);
+    } // end of usage()
+
+} // end of class SudokuValidate
@@ -0,0 +1,384 @@
+package solver;
+
+import grid.KillerSudokuGrid;
+import grid.StdSudokuGrid;
+import grid.SudokuGrid;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+
+/**
+ * Benchmark harness for the solvers and their hot primitives.
+ *
+ * Every benchmark runs in its own forked JVM (unless -f 0), goes through a
+ * number of timed warm-up iterations so the JIT settles, and then reports the
+ * mean and standard deviation of ns/op over the measurement iterations of all
+ * forks.  Results are fed into a volatile sink so the work cannot be optimised
+ * away.  Solve benchmarks run every SudokuSolver on the sampleGames corpus and
+ * on generated 9x9 and 16x16 sets; one op solves the whole corpus once.
+ * Count benchmarks check the uniqueness (limit 2) of the generated 9x9 set.
+ *
+ * Lives in package solver to reach the package-private primitives; compile it
+ * together with the main sources:
+ *   javac -d out *.java grid/*.java solver/*.java benchmark/solver/*.java
+ *   java -cp out solver.SolverBenchmark [-f forks] [-wi n] [-i n] [-t ms] [regex]...
+ */
+public class SolverBenchmark
+{
+    //Attributes for class SolverBenchmark.
+    static volatile long sink;
+    static int forks = 1, warmups = 5, iterations = 10, iterationMillis = 500;
+    static String samplesDir = System.getProperty("bench.samples", "sampleGames");
+
+    //one benchmark operation, returns a value for the sink
+    interface Op {
+        long run();
+    }
+
+    //a grid plus a copy of its clues, so it can be reset before every solve
+    static class Puzzle {
+        final SudokuGrid grid;
+        final int[][] clues;
+
+        Puzzle(SudokuGrid grid) {
+            this.grid = grid;
+            this.clues = new int[grid.getGridSize()][];
+            for (int x = 0; x < clues.length; x++) {
+                clues[x] = grid.getGrid()[x].clone();
+            }
+        }
+
+        void reset() {
+            grid.setGrid(clues);
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception
+    {
+        List<String> filters = new ArrayList<>();
+        String runName = null;
+        for (int x = 0; x < args.length; x++) {
+            switch (args[x]) {
+                case "-f": forks = Integer.parseInt(args[++x]); break;
+                case "-wi": warmups = Integer.parseInt(args[++x]); break;
+                case "-i": iterations = Integer.parseInt(args[++x]); break;
+                case "-t": iterationMillis = Integer.parseInt(args[++x]); break;
+                case "-run": runName = args[++x]; break;
+                default: filters.add(args[x]);
+            }
+        }
+
+        Map<String, Supplier<Op>> benchmarks = benchmarks();
+        if (runName != null) {
+            // child JVM: run one benchmark and print its iteration results
+            for (double score : measure(benchmarks.get(runName).get())) {
+                System.out.println("RESULT " + score);
+            }
+            return;
+        }
+
+        System.out.printf("%-50s %14s %12s%n", "Benchmark", "ns/op", "error");
+        for (String name : benchmarks.keySet()) {
+            if (!matches(name, filters)) continue;
+            List<Double> scores = new ArrayList<>();
+            if (forks == 0) {
+                for (double score : measure(benchmarks.get(name).get())) scores.add(score);
+            }
+            for (int f = 0; f < forks; f++) {
+                scores.addAll(fork(name));
+            }
+            double mean = 0, var = 0;
+            for (double score : scores) mean += score;
+            mean /= Math.max(1, scores.size());
+            for (double score : scores) var += (score - mean) * (score - mean);
+            double error = scores.size() > 1 ? Math.sqrt(var / (scores.size() - 1)) : 0;
+            System.out.printf("%-50s %14.1f %12.1f%n", name, mean, error);
+        }
+    } // end of main()
+
+
+    //Method to run the warm-up and measurement iterations, returns ns/op of each
+    static double[] measure(Op op)
+    {
+        for (int x = 0; x < warmups; x++) {
+            iteration(op);
+        }
+        double[] scores = new double[iterations];
+        for (int x = 0; x < iterations; x++) {
+            scores[x] = iteration(op);
+        }
+        return scores;
+    }
+
+    //Method to run the op for one iteration time, returns ns/op
+    static double iteration(Op op)
+    {
+        long deadline = System.nanoTime() + iterationMillis * 1000000L;
+        long ops = 0, acc = 0;
+        long start = System.nanoTime(), now;
+        do {
+            acc += op.run();
+            ops++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        sink += acc;
+        return (double)(now - start) / ops;
+    }
+
+    //Method to run one benchmark in a fresh JVM and collect its scores
+    static List<Double> fork(String name) throws IOException, InterruptedException
+    {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            "-Dbench.samples=" + samplesDir, SolverBenchmark.class.getName(),
+            "-wi", "" + warmups, "-i", "" + iterations, "-t", "" + iterationMillis, "-run", name);
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        List<Double> scores = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("RESULT ")) {
+                    scores.add(Double.parseDouble(line.substring(7)));
+                }
+                else {
+                    System.err.println(name + ": " + line);
+                }
+            }
+        }
+        process.waitFor();
+        return scores;
+    }
+
+    static boolean matches(String name, List<String> filters)
+    {
+        if (filters.isEmpty()) return true;
+        for (String filter : filters) {
+            if (name.matches(".*" + filter + ".*")) return true;
+        }
+        return false;
+    }
+
+
+    /* ************************************************* */
+
+
+    //Method to list every benchmark; setups only run inside the measuring JVM
+    static Map<String, Supplier<Op>> benchmarks()
+    {
+        Map<String, Supplier<Op>> benchmarks = new LinkedHashMap<>();
+
+        Map<String, Supplier<SudokuSolver>> stdSolvers = new LinkedHashMap<>();
+        stdSolvers.put("backtracking", BackTrackingSolver::new);
+        stdSolvers.put("algorx", AlgorXSolver::new);
+        stdSolvers.put("dancing", DancingLinksSolver::new);
+        stdSolvers.put("parallel", ParallelSolver::new);
+        stdSolvers.put("portfolio", () -> new PortfolioSolver(new BackTrackingSolver(),
+            new DancingLinksSolver(), new AlgorXSolver()));
+        Map<String, Supplier<List<Puzzle>>> stdCorpora = new LinkedHashMap<>();
+        stdCorpora.put("samples", () -> loadSamples("std", StdSudokuGrid::new));
+        stdCorpora.put("gen9", () -> generate(9, 50, 0.40, 1));
+        stdCorpora.put("gen16", () -> generate(16, 10, 0.55, 2));
+        for (String solver : stdSolvers.keySet()) {
+            for (String corpus : stdCorpora.keySet()) {
+                benchmarks.put("solve.sudoku." + solver + "." + corpus,
+                    () -> solveOp(stdSolvers.get(solver).get(), stdCorpora.get(corpus).get()));
+            }
+            benchmarks.put("count.sudoku." + solver + ".gen9",
+                () -> countOp(stdSolvers.get(solver).get(), generate(9, 50, 0.40, 1), 2));
+        }
+
+        Map<String, Supplier<SudokuSolver>> killerSolvers = new LinkedHashMap<>();
+        killerSolvers.put("backtracking", KillerBackTrackingSolver::new);
+        killerSolvers.put("advanced", KillerAdvancedSolver::new);
+        killerSolvers.put("dancing", KillerDancingLinksSolver::new);
+        killerSolvers.put("parallel", ParallelSolver::new);
+        killerSolvers.put("portfolio", () -> new PortfolioSolver(new KillerAdvancedSolver(),
+            new KillerDancingLinksSolver(), new KillerBackTrackingSolver()));
+        for (String solver : killerSolvers.keySet()) {
+            benchmarks.put("solve.killer." + solver + ".easy",
+                () -> solveOp(killerSolvers.get(solver).get(), loadSamples("easy-killer", KillerSudokuGrid::new)));
+            // the plain backtracking solver needs seconds per hard puzzle
+            if (!solver.equals("backtracking")) {
+                benchmarks.put("solve.killer." + solver + ".hard",
+                    () -> solveOp(killerSolvers.get(solver).get(), loadSamples("hard-killer", KillerSudokuGrid::new)));
+            }
+        }
+
+        benchmarks.put("prim.BackTrackingSolver.isPossible", () -> {
+            BackTrackingSolver solver = new BackTrackingSolver();
+            solver.board = new BitBoard(generate(9, 1, 0.40, 3).get(0).grid);
+            int[] values = solver.board.validNumbers;
+            return () -> {
+                long count = 0;
+                for (int r = 0; r < 9; r++)
+                    for (int c = 0; c < 9; c++)
+                        for (int value : values)
+                            if (solver.isPossible(r, c, value)) count++;
+                return count;
+            };
+        });
+        benchmarks.put("prim.DancingLinksSolver.coverUncover", () -> {
+            DancingLinksSolver solver = new DancingLinksSolver();
+            solver.prepare(generate(9, 1, 0.0, 4).get(0).grid);
+            DancingLinks links = solver.links;
+            return () -> {
+                long count = 0;
+                for (int header = 1; header <= links.numCols; header++) {
+                    links.cover(header);
+                    count += links.colSize[links.right[0]];
+                    links.uncover(header);
+                }
+                return count;
+            };
+        });
+        benchmarks.put("prim.AlgorXSolver.getPriorityColumn", () -> {
+            AlgorXSolver solver = new AlgorXSolver();
+            solver.prepare(generate(9, 1, 0.40, 5).get(0).grid);
+            return solver::getPriorityColumn;
+        });
+        benchmarks.put("prim.Propagator.propagate", () -> {
+            SudokuGrid grid = generate(9, 1, 0.35, 6).get(0).grid;
+            return () -> {
+                BitBoard board = new BitBoard(grid);
+                new Propagator(board).propagate();
+                return board.getEmptyCount();
+            };
+        });
+        benchmarks.put("prim.CageModel.allowed", () -> {
+            CageModel cages = loadSamples("easy-killer-99", KillerSudokuGrid::new).get(0).grid.getCageModel();
+            int cells = cages.gridSize * cages.gridSize;
+            return () -> {
+                long acc = 0;
+                for (int cell = 0; cell < cells; cell++) acc += cages.allowed(cell);
+                return acc;
+            };
+        });
+        benchmarks.put("prim.CageModel.canPlace", () -> {
+            CageModel cages = loadSamples("easy-killer-99", KillerSudokuGrid::new).get(0).grid.getCageModel();
+            int cells = cages.gridSize * cages.gridSize;
+            int symbols = cages.validNumbers.length;
+            return () -> {
+                long count = 0;
+                for (int cell = 0; cell < cells; cell++)
+                    for (int symbol = 0; symbol < symbols; symbol++)
+                        if (cages.canPlace(cell, symbol)) count++;
+                return count;
+            };
+        });
+
+        return benchmarks;
+    } // end of benchmarks()
+
+    //Method to build an op which solves every puzzle of a corpus once
+    static Op countOp(SudokuSolver solver, List<Puzzle> puzzles, int limit)
+    {
+        return () -> {
+            long count = 0;
+            for (Puzzle puzzle : puzzles) {
+                count += solver.countSolutions(puzzle.grid, limit);
+            }
+            return count;
+        };
+    }
+
+    static Op solveOp(SudokuSolver solver, List<Puzzle> puzzles)
+    {
+        return () -> {
+            long solved = 0;
+            for (Puzzle puzzle : puzzles) {
+                puzzle.reset();
+                if (solver.solve(puzzle.grid)) solved++;
+            }
+            return solved;
+        };
+    }
+
+    //Method to load the sampleGames files whose name starts with prefix
+    static List<Puzzle> loadSamples(String prefix, Supplier<SudokuGrid> gridType)
+    {
+        File[] files = new File(samplesDir).listFiles(
+            (dir, name) -> name.endsWith(".in") && (name.startsWith(prefix) || name.contains("-" + prefix + "-")));
+        if (files == null || files.length == 0) {
+            throw new IllegalStateException("no " + prefix + " puzzles in " + samplesDir);
+        }
+        Arrays.sort(files);
+        List<Puzzle> puzzles = new ArrayList<>();
+        for (File file : files) {
+            SudokuGrid grid = gridType.get();
+            try {
+                grid.initGrid(file.getPath());
+            }
+            catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            puzzles.add(new Puzzle(grid));
+        }
+        return puzzles;
+    }
+
+    //Method to generate puzzles from a shuffled pattern solution, keeping a
+    //fraction of the cells as clues (the puzzles need not be unique)
+    static List<Puzzle> generate(int size, int count, double clueFraction, long seed)
+    {
+        Random random = new Random(seed);
+        int box = (int)Math.sqrt(size);
+        int[] values = new int[size];
+        for (int x = 0; x < size; x++) values[x] = x + 1;
+
+        List<Puzzle> puzzles = new ArrayList<>();
+        for (int p = 0; p < count; p++) {
+            int[] rowMap = bandShuffle(box, random);
+            int[] colMap = bandShuffle(box, random);
+            int[] relabel = shuffle(size, random);
+            int[][] cells = new int[size][size];
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    if (random.nextDouble() < clueFraction) {
+                        int pr = rowMap[r], pc = colMap[c];
+                        cells[r][c] = values[relabel[(box * (pr % box) + pr / box + pc) % size]];
+                    }
+                }
+            }
+            StdSudokuGrid grid = new StdSudokuGrid();
+            grid.initGrid(size, values);
+            grid.setGrid(cells);
+            puzzles.add(new Puzzle(grid));
+        }
+        return puzzles;
+    }
+
+    //Method to permute bands and the rows within each band
+    static int[] bandShuffle(int box, Random random)
+    {
+        int[] bands = shuffle(box, random);
+        int[] map = new int[box * box];
+        for (int b = 0; b < box; b++) {
+            int[] inner = shuffle(box, random);
+            for (int x = 0; x < box; x++) map[b * box + x] = bands[b] * box + inner[x];
+        }
+        return map;
+    }
+
+    static int[] shuffle(int n, Random random)
+    {
+        int[] perm = new int[n];
+        for (int x = 0; x < n; x++) perm[x] = x;
+        for (int x = n - 1; x > 0; x--) {
+            int y = random.nextInt(x + 1);
+            int t = perm[x]; perm[x] = perm[y]; perm[y] = t;
+        }
+        return perm;
+    }
+
+} // end of class SolverBenchmark
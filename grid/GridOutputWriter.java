@@ -0,0 +1,164 @@
+package grid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Buffered writer of solved grids in the output file format (.exp): one line
+ * per row, the values separated by commas.  Any number of grids, and label or
+ * one-line puzzle lines between them, can be appended to one file.
+ *
+ * Cells are formatted digit by digit straight into one reused buffer, which
+ * goes to the file's channel only when full and on close(), so writing a grid
+ * creates no Strings and a dump of many grids costs a handful of system calls
+ * rather than one per cell.
+ */
+public class GridOutputWriter implements Closeable
+{
+    //size of the output buffer
+    static final int BUFFER_SIZE = 1 << 16;
+    //longest formatted value: a sign and ten digits
+    static final int MAX_VALUE_BYTES = 11;
+
+    //Attributes for class GridOutputWriter.
+    private final FileChannel channel;
+    private ByteBuffer buffer;
+    //digits of the value being formatted, least significant first
+    private final byte[] digits = new byte[MAX_VALUE_BYTES];
+
+    //Constructor which opens a file, truncated unless append is set
+    public GridOutputWriter(String filename, boolean append) throws IOException
+    {
+        this(filename, append, BUFFER_SIZE);
+    }
+
+    //Constructor with a buffer size, e.g. the size of the one grid a file will hold
+    public GridOutputWriter(String filename, boolean append, int bufferSize) throws IOException
+    {
+        buffer = ByteBuffer.allocate(Math.max(bufferSize, MAX_VALUE_BYTES + 1));
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    //Method to get the most bytes a grid of the given size formats to
+    public static int bytesFor(int gridSize)
+    {
+        return gridSize * gridSize * (MAX_VALUE_BYTES + 1);
+    }
+
+    //Method to append a grid, one comma separated line per row
+    public void writeGrid(int[][] grid) throws IOException
+    {
+        for (int[] row : grid)
+        {
+            reserve(row.length * (MAX_VALUE_BYTES + 1));
+            for (int y = 0; y < row.length; y++)
+            {
+                if (y > 0)
+                {
+                    buffer.put((byte)',');
+                }
+                putValue(row[y]);
+            }
+            buffer.put((byte)'\n');
+        }
+    }
+
+    //Method to append the bytes of a line and a newline
+    public void writeLine(byte[] line) throws IOException
+    {
+        if (line.length >= buffer.capacity())
+        {
+            flush();
+            ByteBuffer whole = ByteBuffer.wrap(line);
+            while (whole.hasRemaining())
+            {
+                channel.write(whole);
+            }
+        }
+        else
+        {
+            reserve(line.length + 1);
+            buffer.put(line);
+        }
+        reserve(1);
+        buffer.put((byte)'\n');
+    }
+
+    //Method to append a line of text and a newline, characters outside ASCII become '?'
+    public void writeLine(String text) throws IOException
+    {
+        reserve(text.length() + 1);
+        for (int x = 0; x < text.length(); x++)
+        {
+            char c = text.charAt(x);
+            buffer.put(c < 128 ? (byte)c : (byte)'?');
+        }
+        buffer.put((byte)'\n');
+    }
+
+    //Method to format a value into the buffer without creating a String
+    private void putValue(int value)
+    {
+        long rest = value;
+        if (rest < 0)
+        {
+            buffer.put((byte)'-');
+            rest = -rest;
+        }
+        int count = 0;
+        do
+        {
+            digits[count++] = (byte)('0' + rest % 10);
+            rest /= 10;
+        }
+        while (rest != 0);
+        while (count > 0)
+        {
+            buffer.put(digits[--count]);
+        }
+    }
+
+    //Method to make room for bytes in the buffer, flushing or growing it
+    private void reserve(int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes)
+        {
+            flush();
+            if (buffer.capacity() < bytes)
+            {
+                buffer = ByteBuffer.allocate(bytes);
+            }
+        }
+    }
+
+    //Method to write the buffered bytes to the file
+    public void flush() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+} // end of class GridOutputWriter
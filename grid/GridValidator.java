@@ -0,0 +1,167 @@
+package grid;
+
+import java.util.List;
+import solver.Cage;
+import solver.Index;
+
+
+/**
+ * Bitmask validator of solved grids.  Every row, column and box must hold
+ * each valid number exactly once and, for Killer Sudoku, the numbers of every
+ * cage must be distinct and add up to the cage total.
+ *
+ * Each unit is checked with one long of seen symbols: a cell whose value is
+ * not a valid number, or whose symbol is already in the mask, fails the grid
+ * at once, and a unit of size cells without a repeat holds every symbol.  The
+ * validator keeps only the shape of its grids, so validate() allocates
+ * nothing and one validator can be shared by any number of threads.
+ */
+public class GridValidator
+{
+    //Attributes for class GridValidator.
+    final int size, boxSize;
+    final SymbolTable symbols;
+    //row-major cells and totals of the cages, none for standard Sudoku
+    private final int[][] cageCells;
+    private final int[] cageTotals;
+
+    //Constructor for grids of the given size and symbols, cages may be null
+    public GridValidator(int size, SymbolTable symbols, List<Cage> cages)
+    {
+        if (size > 64)
+        {
+            throw new IllegalArgumentException("grid size must be at most 64");
+        }
+        this.size = size;
+        boxSize = (int)Math.sqrt(size);
+        this.symbols = symbols;
+        int cageCount = cages == null ? 0 : cages.size();
+        cageCells = new int[cageCount][];
+        cageTotals = new int[cageCount];
+        for (int c = 0; c < cageCount; c++)
+        {
+            List<Index> indexList = cages.get(c).getIndexList();
+            cageCells[c] = new int[indexList.size()];
+            for (int x = 0; x < indexList.size(); x++)
+            {
+                cageCells[c][x] = indexList.get(x).getX() * size + indexList.get(x).getY();
+            }
+            cageTotals[c] = cages.get(c).getCageTotal();
+        }
+    }
+
+    //Method to check every row, column, box and cage of a grid of values
+    public boolean validate(int[][] grid)
+    {
+        if (grid.length != size)
+        {
+            return false;
+        }
+        for (int x = 0; x < size; x++)
+        {
+            if (grid[x].length != size || !validRow(grid[x]))
+            {
+                return false;
+            }
+        }
+        for (int y = 0; y < size; y++)
+        {
+            long seen = 0;
+            for (int x = 0; x < size; x++)
+            {
+                long bit = 1L << symbols.indexOf(grid[x][y]);
+                if ((seen & bit) != 0)
+                {
+                    return false;
+                }
+                seen |= bit;
+            }
+        }
+        for (int box = 0; box < size; box++)
+        {
+            int boxRow = (box / boxSize) * boxSize;
+            int boxColumn = (box % boxSize) * boxSize;
+            long seen = 0;
+            for (int x = boxRow; x < boxRow + boxSize; x++)
+            {
+                for (int y = boxColumn; y < boxColumn + boxSize; y++)
+                {
+                    long bit = 1L << symbols.indexOf(grid[x][y]);
+                    if ((seen & bit) != 0)
+                    {
+                        return false;
+                    }
+                    seen |= bit;
+                }
+            }
+        }
+        for (int c = 0; c < cageCells.length; c++)
+        {
+            long seen = 0;
+            long sum = 0;
+            for (int cell : cageCells[c])
+            {
+                int value = grid[cell / size][cell % size];
+                long bit = 1L << symbols.indexOf(value);
+                if ((seen & bit) != 0)
+                {
+                    return false;
+                }
+                seen |= bit;
+                sum += value;
+            }
+            if (sum != cageTotals[c])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Method to check a row and that all its values are valid numbers, so the
+    //column, box and cage passes can shift by the symbol index unchecked
+    private boolean validRow(int[] row)
+    {
+        long seen = 0;
+        for (int value : row)
+        {
+            int symbol = symbols.indexOf(value);
+            if (symbol < 0 || (seen & (1L << symbol)) != 0)
+            {
+                return false;
+            }
+            seen |= 1L << symbol;
+        }
+        return true;
+    }
+
+    //Method to check that a solution keeps every clue of its puzzle
+    public static boolean keepsClues(int[][] puzzle, int[][] solution)
+    {
+        if (puzzle.length != solution.length)
+        {
+            return false;
+        }
+        for (int x = 0; x < puzzle.length; x++)
+        {
+            if (puzzle[x].length != solution[x].length)
+            {
+                return false;
+            }
+            for (int y = 0; y < puzzle[x].length; y++)
+            {
+                if (puzzle[x][y] != 0 && puzzle[x][y] != solution[x][y])
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    //getter method which returns the size of the grids this validator checks
+    public int getSize() {
+        return size;
+    }
+
+} // end of class GridValidator
@@ -7,6 +7,7 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
 import solver.Cage;
+import solver.CageModel;
 import solver.Index;
 
 
@@ -26,7 +27,10 @@ public class KillerSudokuGrid extends SudokuGrid
     int gridSize = 0;
     int cageNo = 0;
     int validNumbers[];
+    SymbolTable symbolTable;
     List<Cage> cageList = new ArrayList<>();
+    //checks solutions against the rows, columns, boxes and cages, built on first use
+    GridValidator validator;
 
     public KillerSudokuGrid() {
         super();
@@ -41,10 +45,27 @@ public class KillerSudokuGrid extends SudokuGrid
   //Initialize grid for killer sudoku
     public void initGrid(String filename) throws FileNotFoundException, IOException
     {
-        int counter = 1;
         File inputFile = new File(filename);
         FileReader fileReader = new FileReader(inputFile);
         BufferedReader buffReader = new BufferedReader(fileReader);
+        try
+        {
+            initGrid(buffReader);
+        }
+        finally
+        {
+            buffReader.close();
+        }
+    } // end of initBoard()
+
+
+    @Override
+    //Initialize grid for killer sudoku from the lines of a reader, in the input file format
+    public void initGrid(BufferedReader buffReader) throws IOException
+    {
+        int counter = 1;
+        cageList = new ArrayList<>();
+        validator = null;
         String readFileLine;
       //Read file till the end of the file
         while ((readFileLine = buffReader.readLine()) != null) 
@@ -52,28 +73,23 @@ public class KillerSudokuGrid extends SudokuGrid
         	//read the grid size from file and assign it to a variable
             if (counter == 1) 
             {
-                gridSize = Integer.parseInt(readFileLine);
+                gridSize = Integer.parseInt(readFileLine.trim());
                 grid = new int[gridSize][gridSize];
             } 
             //read the valid numbers for the sudoku from input file and assign it a variable
             else if (counter == 2) 
             {
-                char temp[] = readFileLine.replace(" ", "").toCharArray();
-                validNumbers = new int[temp.length];
-                for (int i = 0; i < temp.length; i++) 
-                {
-                    validNumbers[i] = Integer.parseInt(String.valueOf(temp[i]));
-                }
+                setValidNumbers(SymbolTable.parseValidNumbers(readFileLine, gridSize));
             } 
             //Read the number of cages in sudoku from input file and store it in a variable
             else if (counter == 3) 
             {
-                cageNo = Integer.parseInt(readFileLine);
+                cageNo = Integer.parseInt(readFileLine.trim());
             }
             //Read the indexes of the cell and the sum of their cage from input file
-            else 
+            else if (!readFileLine.trim().isEmpty()) 
             {
-                String temp[] = readFileLine.split(" ");
+                String temp[] = readFileLine.trim().split("\\s+");
                 int cageTotal = Integer.parseInt(temp[0]);
                 Cage cage = new Cage();
                 cage.setCageTotal(cageTotal);
@@ -91,30 +107,17 @@ public class KillerSudokuGrid extends SudokuGrid
             }
             counter++;
         }
-    } // end of initBoard()
+    } // end of initGrid()
 
 
     @Override
   //output the solved grid to output file
     public void outputGrid(String filename) throws FileNotFoundException, IOException
     {
-        FileWriter filewriter = new FileWriter(filename + ".exp");
-        for (int x = 0; x < gridSize; x++) 
+        try (GridOutputWriter out = new GridOutputWriter(filename + ".exp", false, GridOutputWriter.bytesFor(gridSize)))
         {
-            for (int y = 0; y < grid[x].length; y++) 
-            {
-                if (y == gridSize-1) 
-                {
-                    filewriter.write(grid[x][y]+"");
-                } 
-                else 
-                {
-                    filewriter.write(grid[x][y] + ",");
-                }
-            }
-            filewriter.write("\n");
+            out.writeGrid(grid);
         }
-        filewriter.close();
     } // end of outputBoard()
 
 
@@ -143,92 +146,15 @@ public class KillerSudokuGrid extends SudokuGrid
     } // end of toString()
     
     
-    //Helper method to check if a list of all unique numbers from valid numbers 
-    private boolean isListGood(ArrayList<Integer> list) 
-    {
-        for (int x = 0; x < gridSize; x++) 
-        {
-            if (!list.contains(validNumbers[x])) 
-            	{
-            		return true;
-            	}
-        }
-        
-        return false;
-    }
-    
-    //Method to validates all constraints of current grid
+    //Method to validate all constraints of current grid with the bitmask validator
     public boolean validate() 
-    {        
-        if (!validateAllRows() && !validateAllCoulmns() && !validateAllBoxes()) 
-        {
-            return true;
-        }
-        return false;
-    } // end of validate()
-    
-    //Helper method to validate if all rows satisfy row constraint
-    private boolean validateAllRows() 
     {
-        for (int x = 0; x < gridSize; x++) 
+        if (validator == null) 
         {
-            ArrayList<Integer> tempList = new ArrayList<>();
-            for (int y = 0; y < gridSize; y++) 
-            {
-                tempList.add(grid[x][y]);
-            }
-            if (isListGood(tempList)) 
-            	{
-            		return true;
-            	}
-        }
-        
-        return false;
-    }
-    
-  //Helper method to validate if all columns satisfy column constraint
-    private boolean validateAllCoulmns() 
-    {
-        for (int x = 0; x < gridSize; x++) 
-        {
-            ArrayList<Integer> tempList = new ArrayList<>();
-            for (int y = 0; y < gridSize; y++) 
-            {
-                tempList.add(grid[y][x]);
-            }
-            if (isListGood(tempList)) 
-            	{
-            		return true;
-            	}
-        }
-        return false;
-    }
-    
-  //Helper method to validate if all boxes satisfy box constraint
-    private boolean validateAllBoxes() 
-    {
-        int boxSize = (int)Math.sqrt(gridSize);
-        for (int x = 0; x < gridSize; x++) 
-        {
-            int boxRow = (x / boxSize) * boxSize;
-            int boxcolumn = (x % boxSize) * boxSize;
-            
-            ArrayList<Integer> tempList = new ArrayList<>();
-            for (int i = boxRow; i < (boxRow + boxSize); i++) 
-            {
-                for (int j = boxcolumn; j < (boxcolumn + boxSize); j++) 
-                {
-                    tempList.add(grid[i][j]);
-                }
-            }
-            if (isListGood(tempList)) 
-            	{
-            		return true;
-            	}
+            validator = new GridValidator(gridSize, getSymbolTable(), cageList);
         }
-        
-        return false;
-    }
+        return validator.validate(grid);
+    } // end of validate()
     
     
     
@@ -276,11 +202,45 @@ public class KillerSudokuGrid extends SudokuGrid
   //setter method to set valid numbers
     public void setValidNumbers(int[] validNumbers) {
         this.validNumbers = validNumbers;
+        this.symbolTable = null;
+        this.validator = null;
+    }
+
+    @Override
+  //getter method which returns the mapping between valid numbers and symbol indices
+    public SymbolTable getSymbolTable() {
+        if (symbolTable == null) {
+            symbolTable = new SymbolTable(validNumbers);
+        }
+        return symbolTable;
     }
     // getter method which returns all set of cage and indexes combination
     public List<Cage> getCageList() {
         return cageList;
     }
+
+    @Override
+    // method which copies the grid, sharing the valid numbers, symbol table and cages
+    public SudokuGrid copy() {
+        KillerSudokuGrid other = new KillerSudokuGrid();
+        other.gridSize = gridSize;
+        other.cageNo = cageNo;
+        other.validNumbers = validNumbers;
+        other.symbolTable = getSymbolTable();
+        other.cageList = cageList;
+        other.grid = new int[gridSize][];
+        for (int x = 0; x < gridSize; x++) {
+            other.grid[x] = grid[x].clone();
+        }
+        return other;
+    }
+
+    @Override
+    // getter method which returns a fresh cell-to-cage index of the cages, with
+    // running sums at zero for the solver to update as it places values
+    public CageModel getCageModel() {
+        return new CageModel(cageList, gridSize, getSymbolTable());
+    }
     
 
 } // end of class KillerSudokuGrid
@@ -0,0 +1,174 @@
+package grid;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Streaming reader for the packed binary grid format (.sdb) written by
+ * PackedGridWriter.
+ *
+ * Each call to next() reads one grid record, following the alphabet records
+ * on the way, and unpacks its cells into a reused array, so reading a grid
+ * creates no objects.  The record of a grid has a fixed size for its
+ * alphabet, so a truncated file is reported rather than misread.
+ */
+public class PackedGridReader implements Closeable
+{
+    //Attributes for class PackedGridReader.
+    private final DataInputStream in;
+    private int[] validNumbers;
+    private int gridSize, bits;
+    private byte[] packed;
+    private int[][] cells;
+    private long gridNumber;
+
+    //Constructor which opens a file and checks its magic
+    public PackedGridReader(String filename) throws IOException
+    {
+        this(new BufferedInputStream(new FileInputStream(filename), 1 << 16));
+    }
+
+    //Constructor which reads from a stream, closed with this reader
+    public PackedGridReader(InputStream stream) throws IOException
+    {
+        in = new DataInputStream(stream);
+        byte[] magic = new byte[PackedGridWriter.MAGIC.length];
+        try
+        {
+            in.readFully(magic);
+        }
+        catch (EOFException e)
+        {
+            throw new IOException("not a packed grid file");
+        }
+        for (int x = 0; x < magic.length; x++)
+        {
+            if (magic[x] != PackedGridWriter.MAGIC[x])
+            {
+                throw new IOException("not a packed grid file, or an unsupported version");
+            }
+        }
+    }
+
+    //Method to read the next grid, returns false at the end of the file
+    public boolean next() throws IOException
+    {
+        while (true)
+        {
+            int tag = in.read();
+            if (tag < 0)
+            {
+                return false;
+            }
+            if (tag == PackedGridWriter.ALPHABET_TAG)
+            {
+                readAlphabet();
+            }
+            else if (tag == PackedGridWriter.GRID_TAG && validNumbers != null)
+            {
+                gridNumber++;
+                readGrid();
+                return true;
+            }
+            else
+            {
+                throw new IOException("grid " + (gridNumber + 1) + ": unexpected record tag " + tag);
+            }
+        }
+    }
+
+    //Method to read the alphabet record after its tag
+    private void readAlphabet() throws IOException
+    {
+        gridSize = in.readUnsignedByte();
+        int boxSize = (int)Math.sqrt(gridSize);
+        if (gridSize == 0 || boxSize * boxSize != gridSize)
+        {
+            throw new IOException("grid " + (gridNumber + 1) + ": alphabet size must be a square");
+        }
+        validNumbers = new int[gridSize];
+        for (int x = 0; x < gridSize; x++)
+        {
+            validNumbers[x] = in.readInt();
+        }
+        bits = PackedGridWriter.bitsPerCell(gridSize);
+        packed = new byte[PackedGridWriter.packedBytes(gridSize)];
+        cells = new int[gridSize][gridSize];
+    }
+
+    //Method to read and unpack the grid record after its tag
+    private void readGrid() throws IOException
+    {
+        try
+        {
+            in.readFully(packed);
+        }
+        catch (EOFException e)
+        {
+            throw new IOException("grid " + gridNumber + ": file ends inside the grid");
+        }
+        int mask = (1 << bits) - 1;
+        long pending = 0;
+        int pendingBits = 0;
+        int pos = 0;
+        for (int x = 0; x < gridSize; x++)
+        {
+            int[] row = cells[x];
+            for (int y = 0; y < gridSize; y++)
+            {
+                while (pendingBits < bits)
+                {
+                    pending |= (long)(packed[pos++] & 0xff) << pendingBits;
+                    pendingBits += 8;
+                }
+                int code = (int)pending & mask;
+                pending >>>= bits;
+                pendingBits -= bits;
+                if (code > gridSize)
+                {
+                    throw new IOException("grid " + gridNumber + ": invalid cell code " + code);
+                }
+                row[y] = code == 0 ? 0 : validNumbers[code - 1];
+            }
+        }
+    }
+
+    //Method to load the current grid into a standard Sudoku grid
+    public void copyTo(StdSudokuGrid grid)
+    {
+        grid.initGrid(gridSize, validNumbers.clone());
+        grid.setGrid(cells);
+    }
+
+    //getter method which returns the grid read last, reused by next()
+    public int[][] getCells() {
+        return cells;
+    }
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    //getter method which returns the current valid numbers, a new array after every alphabet record
+    public int[] getValidNumbers() {
+        return validNumbers;
+    }
+
+    //getter method which returns the number of grids read so far, from 1
+    public long getGridNumber() {
+        return gridNumber;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        in.close();
+    }
+
+} // end of class PackedGridReader
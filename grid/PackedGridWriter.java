@@ -0,0 +1,152 @@
+package grid;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+
+/**
+ * Writer for the packed binary grid format (.sdb), which holds any number of
+ * grids in a fraction of the space of the text formats.
+ *
+ * The file starts with MAGIC.  An alphabet record, ALPHABET_TAG, the grid
+ * size as one unsigned byte and the valid numbers as 4-byte big-endian ints,
+ * applies to the grid records after it, and is written again only when the
+ * alphabet changes.  A grid record, GRID_TAG, holds the cells in row-major
+ * order as codes of bitsPerCell(size) bits each, 0 for an empty cell and
+ * i + 1 for the i-th valid number, packed from the low bits of each byte up
+ * and padded to a whole byte.  A 9x9 grid is thus nibble-packed into 41 bytes
+ * (82 as a .sdm line, about 162 as a .exp file) and a 16x16 one takes 5 bits
+ * per cell.  Cages are not stored, only the values of the cells.
+ *
+ * Grids are packed into a reused buffer, so writing a grid creates no objects
+ * unless its alphabet changed.  See PackedGridReader.
+ */
+public class PackedGridWriter implements Closeable
+{
+    //first bytes of every packed grid file: "SDB" and the format version
+    static final byte[] MAGIC = {'S', 'D', 'B', 1};
+    static final int ALPHABET_TAG = 'A';
+    static final int GRID_TAG = 'G';
+    //largest grid size the one byte size field can hold
+    static final int MAX_SIZE = 255;
+
+    //Attributes for class PackedGridWriter.
+    private final DataOutputStream out;
+    private int[] validNumbers;
+    private SymbolTable symbols;
+    private int gridSize, bits;
+    private byte[] packed;
+
+    //Constructor which creates or truncates a file
+    public PackedGridWriter(String filename) throws IOException
+    {
+        this(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16));
+    }
+
+    //Constructor which writes to a stream, closed with this writer
+    public PackedGridWriter(OutputStream stream) throws IOException
+    {
+        out = new DataOutputStream(stream);
+        out.write(MAGIC);
+    }
+
+    //Method to get the code width for a grid size: enough bits for the empty code and every symbol
+    public static int bitsPerCell(int gridSize)
+    {
+        return 32 - Integer.numberOfLeadingZeros(gridSize);
+    }
+
+    //Method to get the bytes of a packed grid record, the tag excluded
+    public static int packedBytes(int gridSize)
+    {
+        return (gridSize * gridSize * bitsPerCell(gridSize) + 7) / 8;
+    }
+
+    //Method to append the values of a grid
+    public void write(SudokuGrid grid) throws IOException
+    {
+        write(grid.getGrid(), grid.getvalidNumbers());
+    }
+
+    //Method to append a grid of values, 0 for an empty cell
+    public void write(int[][] grid, int[] validNumbers) throws IOException
+    {
+        if (!Arrays.equals(validNumbers, this.validNumbers))
+        {
+            writeAlphabet(validNumbers);
+        }
+        if (grid.length != gridSize)
+        {
+            throw new IllegalArgumentException("grid has " + grid.length + " rows, the alphabet " + gridSize + " symbols");
+        }
+
+        Arrays.fill(packed, (byte)0);
+        long pending = 0;
+        int pendingBits = 0;
+        int pos = 0;
+        for (int[] row : grid)
+        {
+            if (row.length != gridSize)
+            {
+                throw new IllegalArgumentException("grid rows must have " + gridSize + " cells");
+            }
+            for (int value : row)
+            {
+                int code = value == 0 ? 0 : symbols.indexOf(value) + 1;
+                if (code == 0 && value != 0)
+                {
+                    throw new IllegalArgumentException(value + " is not a valid number");
+                }
+                pending |= (long)code << pendingBits;
+                pendingBits += bits;
+                while (pendingBits >= 8)
+                {
+                    packed[pos++] = (byte)pending;
+                    pending >>>= 8;
+                    pendingBits -= 8;
+                }
+            }
+        }
+        if (pendingBits > 0)
+        {
+            packed[pos] = (byte)pending;
+        }
+        out.write(GRID_TAG);
+        out.write(packed);
+    }
+
+    //Method to write the alphabet record for the grids that follow
+    private void writeAlphabet(int[] validNumbers) throws IOException
+    {
+        //the same sizes PackedGridReader accepts, so every file written can be read back
+        int size = validNumbers.length;
+        int boxSize = (int)Math.sqrt(size);
+        if (size == 0 || size > MAX_SIZE || boxSize * boxSize != size)
+        {
+            throw new IllegalArgumentException("grid size must be a square of at most " + MAX_SIZE + ", not " + size);
+        }
+        this.validNumbers = validNumbers.clone();
+        symbols = new SymbolTable(validNumbers);
+        gridSize = validNumbers.length;
+        bits = bitsPerCell(gridSize);
+        packed = new byte[packedBytes(gridSize)];
+        out.write(ALPHABET_TAG);
+        out.write(gridSize);
+        for (int value : validNumbers)
+        {
+            out.writeInt(value);
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        out.close();
+    }
+
+} // end of class PackedGridWriter
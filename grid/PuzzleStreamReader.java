@@ -0,0 +1,242 @@
+package grid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+
+/**
+ * Streaming reader for the one-line puzzle format (.sdm).
+ *
+ * Every line holds one standard Sudoku, one character per cell in row-major
+ * order, with '.' or '0' for an empty cell, e.g. 81 characters for a 9x9
+ * puzzle.  The alphabet defaults to "123456789"; a line starting with '#'
+ * switches it for the lines that follow, e.g. "#123456789ABCDEFG" for 16x16,
+ * where the i-th character stands for the value i + 1 ('0' then only means
+ * empty if it is not part of the alphabet).  Blank lines are skipped.
+ *
+ * The file is memory-mapped in windows of up to WINDOW bytes and the cells are
+ * decoded straight from the mapped bytes into a reused array, so reading a
+ * puzzle creates no Strings.
+ */
+public class PuzzleStreamReader implements Closeable
+{
+    public static final String DEFAULT_ALPHABET = "123456789";
+    //symbols of the alphabets chosen for larger grids, in order
+    static final String SYMBOLS = "123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    //size of a mapped window, a line crossing its end gets the next window
+    static final long WINDOW = 1L << 30;
+
+    //Attributes for class PuzzleStreamReader.
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long fileSize;
+    private MappedByteBuffer buffer;
+    private long windowStart;
+    //decode table from a character to its value, 0 for empty and -1 for invalid
+    private final int[] charValue = new int[256];
+    private byte[] alphabet;
+    private int[] validNumbers;
+    private int gridSize;
+    private int[][] cells;
+    private long lineNumber;
+
+    //Constructor which opens and maps the start of the file
+    public PuzzleStreamReader(String filename) throws IOException
+    {
+        file = new RandomAccessFile(filename, "r");
+        channel = file.getChannel();
+        fileSize = channel.size();
+        setAlphabet(DEFAULT_ALPHABET.getBytes("US-ASCII"), 0, DEFAULT_ALPHABET.length());
+        map(0);
+    }
+
+    //Method to map the window starting at a file offset
+    private void map(long start) throws IOException
+    {
+        windowStart = start;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, fileSize - start));
+    }
+
+    //Method to switch the alphabet to the characters bytes[from..to)
+    private void setAlphabet(byte[] bytes, int from, int to) throws IOException
+    {
+        gridSize = to - from;
+        int boxSize = (int)Math.sqrt(gridSize);
+        if (gridSize == 0 || boxSize * boxSize != gridSize)
+        {
+            throw new IOException("line " + lineNumber + ": alphabet size must be a square");
+        }
+        alphabet = new byte[gridSize];
+        validNumbers = new int[gridSize];
+        cells = new int[gridSize][gridSize];
+        Arrays.fill(charValue, -1);
+        charValue['.'] = 0;
+        charValue['0'] = 0;
+        for (int x = 0; x < gridSize; x++)
+        {
+            alphabet[x] = bytes[from + x];
+            validNumbers[x] = x + 1;
+            charValue[bytes[from + x] & 0xff] = x + 1;
+        }
+    }
+
+    //Method to read the next puzzle, returns false at the end of the file
+    public boolean next() throws IOException
+    {
+        while (true)
+        {
+            int start = buffer.position();
+            int end = start;
+            int limit = buffer.limit();
+            while (end < limit && buffer.get(end) != '\n')
+            {
+                end++;
+            }
+            if (end == limit && windowStart + limit < fileSize)
+            {
+                //a line which fills a whole window would never fit in one
+                if (start == 0)
+                {
+                    throw new IOException("line " + (lineNumber + 1) + ": line longer than " + (WINDOW - 1) + " bytes");
+                }
+                //the line runs past this window, continue from its first byte
+                map(windowStart + start);
+                continue;
+            }
+            if (start == limit)
+            {
+                return false;
+            }
+            buffer.position(Math.min(end + 1, limit));
+            lineNumber++;
+
+            int lineEnd = end;
+            if (lineEnd > start && buffer.get(lineEnd - 1) == '\r')
+            {
+                lineEnd--;
+            }
+            if (lineEnd == start)
+            {
+                continue;
+            }
+            if (buffer.get(start) == '#')
+            {
+                byte[] header = new byte[lineEnd - start - 1];
+                for (int x = 0; x < header.length; x++)
+                {
+                    header[x] = buffer.get(start + 1 + x);
+                }
+                setAlphabet(header, 0, header.length);
+                continue;
+            }
+            decode(start, lineEnd);
+            return true;
+        }
+    }
+
+    //Method to decode the cells of a puzzle line from the mapped bytes
+    private void decode(int start, int end) throws IOException
+    {
+        if (end - start != gridSize * gridSize)
+        {
+            throw new IOException("line " + lineNumber + ": expected " + gridSize * gridSize
+                + " cells but found " + (end - start));
+        }
+        int pos = start;
+        for (int x = 0; x < gridSize; x++)
+        {
+            int[] row = cells[x];
+            for (int y = 0; y < gridSize; y++)
+            {
+                int value = charValue[buffer.get(pos++) & 0xff];
+                if (value < 0)
+                {
+                    throw new IOException("line " + lineNumber + ": invalid cell character");
+                }
+                row[y] = value;
+            }
+        }
+    }
+
+    //Method to load the current puzzle into a grid
+    public void copyTo(StdSudokuGrid grid)
+    {
+        grid.initGrid(gridSize, validNumbers.clone());
+        grid.setGrid(cells);
+    }
+
+    //Method to get the alphabet for a grid size: digits, then upper and lower case letters
+    public static byte[] alphabetFor(int gridSize)
+    {
+        if (gridSize > SYMBOLS.length())
+        {
+            throw new IllegalArgumentException("no alphabet for grids of size " + gridSize);
+        }
+        byte[] alphabet = new byte[gridSize];
+        for (int x = 0; x < gridSize; x++)
+        {
+            alphabet[x] = (byte)SYMBOLS.charAt(x);
+        }
+        return alphabet;
+    }
+
+    //Method to format a grid as one line of the given alphabet, without the newline
+    public static byte[] formatLine(int[][] grid, byte[] alphabet)
+    {
+        int gridSize = grid.length;
+        byte[] line = new byte[gridSize * gridSize];
+        int pos = 0;
+        for (int x = 0; x < gridSize; x++)
+        {
+            for (int y = 0; y < gridSize; y++)
+            {
+                int value = grid[x][y];
+                line[pos++] = value == 0 ? (byte)'.' : alphabet[value - 1];
+            }
+        }
+        return line;
+    }
+
+    //Method to format the header line of an alphabet, without the newline
+    public static byte[] formatHeader(byte[] alphabet)
+    {
+        byte[] header = new byte[alphabet.length + 1];
+        header[0] = '#';
+        System.arraycopy(alphabet, 0, header, 1, alphabet.length);
+        return header;
+    }
+
+    //getter method which returns the current alphabet, a new array after every header line
+    public byte[] getAlphabet() {
+        return alphabet;
+    }
+
+    //getter method which returns the grid of the current puzzle, reused by next()
+    public int[][] getCells() {
+        return cells;
+    }
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    public int[] getValidNumbers() {
+        return validNumbers;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+        file.close();
+    }
+
+} // end of class PuzzleStreamReader
@@ -4,10 +4,10 @@
 package grid;
 
 import java.io.*;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import solver.Cage;
+import solver.CageModel;
 
 /**
  * Class implementing the grid for standard Sudoku.
@@ -24,6 +24,9 @@ public class StdSudokuGrid extends SudokuGrid
     int grid[][];
     int gridSize = 0;
     int validNumbers[];
+    SymbolTable symbolTable;
+    //checks solutions against the rows, columns and boxes, built on first use
+    GridValidator validator;
 
     public StdSudokuGrid() {
         super();
@@ -38,10 +41,25 @@ public class StdSudokuGrid extends SudokuGrid
     //Initialize sudoku grid
     public void initGrid(String filename) throws FileNotFoundException, IOException
     {
-        int counter = 1;
         File inputFile = new File(filename);
         FileReader fileReader = new FileReader(inputFile);
         BufferedReader bufReader = new BufferedReader(fileReader);
+        try
+        {
+            initGrid(bufReader);
+        }
+        finally
+        {
+            bufReader.close();
+        }
+    } // end of initBoard()
+
+
+    @Override
+    //Initialize sudoku grid from the lines of a reader, in the input file format
+    public void initGrid(BufferedReader bufReader) throws IOException
+    {
+        int counter = 1;
         String readFileLine;
         //Read file till the end of the file
         while ((readFileLine = bufReader.readLine()) != null)
@@ -49,53 +67,43 @@ public class StdSudokuGrid extends SudokuGrid
         	//read the grid size from file and assign it to a variable
             if (counter == 1) 
             {
-                gridSize = Integer.parseInt(readFileLine);
+                gridSize = Integer.parseInt(readFileLine.trim());
                 grid = new int[gridSize][gridSize];
             } 
             //read the valid numbers for the sudoku from input file and assign it a variable
             else if (counter == 2) 
             {
-                char temp[] = readFileLine.replace(" ", "").toCharArray();
-                validNumbers = new int[temp.length];
-                int y = temp.length;
-                for (int x = 0; x < y; x++) 
-                {
-                    validNumbers[x] = Integer.parseInt(String.valueOf(temp[x]));
-                }
+                setValidNumbers(SymbolTable.parseValidNumbers(readFileLine, gridSize));
             } 
             //Read the numbers and their position already present in original sudoku from input file
-            else 
+            else if (!readFileLine.trim().isEmpty()) 
             {
-                String temp1[] = readFileLine.split(" ");
+                String temp1[] = readFileLine.trim().split("\\s+");
                 String temp2[] = temp1[0].split(",");
                 grid[Integer.parseInt(temp2[0])][Integer.parseInt(temp2[1])] = Integer.parseInt(temp1[1]);
             }
             counter++;
         }
-    } // end of initBoard()
+    } // end of initGrid()
+
+
+    //Initialize an empty grid of the given size and valid numbers
+    public void initGrid(int gridSize, int[] validNumbers)
+    {
+        this.gridSize = gridSize;
+        setValidNumbers(validNumbers);
+        grid = new int[gridSize][gridSize];
+    } // end of initGrid()
 
 
     @Override
     //output the solved grid to output file
     public void outputGrid(String filename) throws FileNotFoundException, IOException
     {
-        FileWriter fileWriter = new FileWriter(filename + ".exp");
-        for (int x = 0; x < gridSize; x++) 
+        try (GridOutputWriter out = new GridOutputWriter(filename + ".exp", false, GridOutputWriter.bytesFor(gridSize)))
         {
-            for (int y = 0; y < grid[x].length; y++) 
-            {
-                if (y == gridSize - 1) 
-                {
-                    fileWriter.write(grid[x][y]+"");
-                } 
-                else 
-                {
-                    fileWriter.write(grid[x][y] + ",");
-                }
-            }
-            fileWriter.write("\n");
+            out.writeGrid(grid);
         }
-        fileWriter.close();
     } // end of outputBoard()
 
 
@@ -124,94 +132,16 @@ public class StdSudokuGrid extends SudokuGrid
         return String.valueOf(stringBuffer.toString());
     } // end of toString()
 
-    //Helper method to check if a list of all unique numbers from valid numbers 
-    private boolean isListGood(ArrayList<Integer> list) 
-    {
-        for (int i = 0; i < gridSize; i++) 
-        {
-            if (!list.contains(validNumbers[i])) 
-            {
-            	return true;
-            }
-        }
-        
-        return false;
-    }
-
     @Override
-    //Method to validates all constraints of current grid
+    //Method to validate all constraints of current grid with the bitmask validator
     public boolean validate() 
-    {        
-        if (!validateAllRows() && !validateAllCloumns() && !validateAllGrids()) 
-        {
-            return true;
-        }
-        return false;
-    } // end of validate()
-    
-    //Helper method to validate if all rows satisfy row constraint
-    private boolean validateAllRows() 
-    {
-        for (int x = 0; x < gridSize; x++) 
-        {
-            ArrayList<Integer> tempList = new ArrayList<>();
-            for (int y = 0; y < gridSize; y++) 
-            {
-                tempList.add(grid[x][y]);
-            }
-            if (isListGood(tempList))
-            {
-            	return true;
-            }
-        }
-        
-        return false;
-    }
-    
-  //Helper method to validate if all columns satisfy column constraint
-    private boolean validateAllCloumns() 
     {
-        for (int x = 0; x < gridSize; x++) 
+        if (validator == null) 
         {
-            ArrayList<Integer> tempList = new ArrayList<>();
-            for (int y = 0; y < gridSize; y++) 
-            {
-                tempList.add(grid[y][x]);
-            }
-            if (isListGood(tempList)) 
-            {
-            	return true;
-            }
+            validator = new GridValidator(gridSize, getSymbolTable(), null);
         }
-        
-        return false;
-    }
-    
-  //Helper method to validate if all boxes satisfy box constraint
-    private boolean validateAllGrids() 
-    {
-        int boxSize = (int)Math.sqrt(gridSize);
-        for (int x = 0; x < gridSize; x++) 
-        {
-            int boxRow = (x / boxSize) * boxSize;
-            int boxColumn = (x % boxSize) * boxSize;
-            
-            ArrayList<Integer> tempList = new ArrayList<>();
-            for (int y = boxRow; y < (boxRow + boxSize); y++) 
-            {
-                for (int z = boxColumn; z < (boxColumn + boxSize); z++) 
-                {
-                    tempList.add(grid[y][z]);
-                }
-            }
-            if (isListGood(tempList)) 
-            {
-            	return true;
-            }
-        }
-        
-        return false;
-    }
+        return validator.validate(grid);
+    } // end of validate()
     
     
     @Override
@@ -236,6 +166,17 @@ public class StdSudokuGrid extends SudokuGrid
     //setter method to set valid numbers
     public void setValidNumbers(int[] validNumbers) {
         this.validNumbers = validNumbers;
+        this.symbolTable = null;
+        this.validator = null;
+    }
+
+    @Override
+    //getter method which returns the mapping between valid numbers and symbol indices
+    public SymbolTable getSymbolTable() {
+        if (symbolTable == null) {
+            symbolTable = new SymbolTable(validNumbers);
+        }
+        return symbolTable;
     }
 
     @Override
@@ -248,10 +189,26 @@ public class StdSudokuGrid extends SudokuGrid
         }
     }
 
+    @Override
+    //method which copies the grid, sharing the valid numbers and symbol table
+    public SudokuGrid copy() {
+        StdSudokuGrid other = new StdSudokuGrid();
+        other.initGrid(gridSize, validNumbers);
+        other.symbolTable = getSymbolTable();
+        other.setGrid(grid);
+        return other;
+    }
+
     @Override
     //this method is implemented only in killer sudoku
     public List<Cage> getCageList() {
         throw new UnsupportedOperationException("Not supported yet."); 
     }
 
+    @Override
+    //this method is implemented only in killer sudoku
+    public CageModel getCageModel() {
+        throw new UnsupportedOperationException("Not supported yet."); 
+    }
+
 } // end of class StdSudokuGrid
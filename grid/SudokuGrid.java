@@ -6,6 +6,7 @@
 
  import java.util.List;
  import solver.Cage;
+ import solver.CageModel;
  import java.io.*;
 
 
@@ -32,6 +33,17 @@ public abstract class SudokuGrid
         throws FileNotFoundException, IOException;
 
 
+    /**
+     * Construct an initial grid from the lines of a reader, in the same format
+     * as the input files.  The reader is not closed.
+     *
+     * @param reader Reader positioned at the start of the grid description.
+     *
+     * @throws IOException If reading fails.
+     */
+    public abstract void initGrid(BufferedReader reader) throws IOException;
+
+
     /**
      * Write out the current values in the grid to file.  This must be implemented
      * in order for your assignment to be evaluated by our testing.
@@ -76,7 +88,17 @@ public abstract class SudokuGrid
     //getter method which returns the list of indexes cagewise
     public abstract List<Cage> getCageList();
 
+    //getter method which returns a fresh cell-to-cage index with empty running sums
+    public abstract CageModel getCageModel();
+
     //getter method which returns integer array of all valid numbers to solve sudoku 
 	public abstract int[] getvalidNumbers();
 
+    //getter method which returns the O(1) mapping between valid numbers and symbol indices
+    public abstract SymbolTable getSymbolTable();
+
+    //Method to copy the grid, the copy has its own cells but shares the valid
+    //numbers and cages, which solvers never change
+    public abstract SudokuGrid copy();
+
 } // end of abstract class SudokuGrid
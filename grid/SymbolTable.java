@@ -0,0 +1,116 @@
+package grid;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Two-way mapping between the valid numbers of a grid and their symbol
+ * indices 0..size-1, which is what the solvers work with internally.
+ * Lookups are O(1): through an offset array when the values span a compact
+ * range (the usual 1..n), otherwise through a hash map.
+ */
+public class SymbolTable
+{
+    //largest value range which is indexed with a plain array
+    static final int MAX_DENSE_RANGE = 4096;
+
+    //Attributes for class SymbolTable.
+    private final int[] values;
+    private final int minValue, maxValue;
+    //indexByValue[value - minValue] is the index of value, -1 if none
+    private int[] indexByValue;
+    private Map<Integer, Integer> indexMap;
+
+    //Constructor which indexes the given valid numbers in order
+    public SymbolTable(int[] validNumbers)
+    {
+        values = validNumbers.clone();
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int value : values)
+        {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        minValue = min;
+        maxValue = max;
+
+        if (values.length > 0 && (long)max - min < MAX_DENSE_RANGE)
+        {
+            indexByValue = new int[max - min + 1];
+            Arrays.fill(indexByValue, -1);
+        }
+        else
+        {
+            indexMap = new HashMap<>();
+        }
+        for (int x = 0; x < values.length; x++)
+        {
+            if (indexOf(values[x]) >= 0)
+            {
+                throw new IllegalArgumentException("valid number " + values[x] + " is listed twice");
+            }
+            if (indexByValue != null)
+            {
+                indexByValue[values[x] - min] = x;
+            }
+            else
+            {
+                indexMap.put(values[x], x);
+            }
+        }
+    }
+
+    //Method to parse the valid numbers line of an input file.  Numbers are
+    //separated by whitespace, so they may have any number of digits; a single
+    //token of exactly gridSize characters is read one digit per character
+    public static int[] parseValidNumbers(String line, int gridSize)
+    {
+        String[] tokens = line.trim().split("\\s+");
+        if (tokens.length == 1 && gridSize > 1 && tokens[0].length() == gridSize)
+        {
+            tokens = tokens[0].split("");
+        }
+        int[] validNumbers = new int[tokens.length];
+        for (int x = 0; x < tokens.length; x++)
+        {
+            validNumbers[x] = Integer.parseInt(tokens[x]);
+        }
+        return validNumbers;
+    }
+
+    //Method to fetch the symbol index of a value, -1 if it is not a valid number
+    public int indexOf(int value)
+    {
+        if (indexByValue != null)
+        {
+            if (value < minValue || value > maxValue)
+            {
+                return -1;
+            }
+            return indexByValue[value - minValue];
+        }
+        Integer index = indexMap.get(value);
+        return index == null ? -1 : index;
+    }
+
+    //Method to fetch the value of a symbol index
+    public int valueAt(int index)
+    {
+        return values[index];
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public int getMinValue() {
+        return minValue;
+    }
+
+    public int getMaxValue() {
+        return maxValue;
+    }
+
+} // end of class SymbolTable
@@ -3,13 +3,20 @@
  */
 package solver;
 import grid.SudokuGrid;
-import grid.StdSudokuGrid;
-import java.util.ArrayList;
-import java.util.Arrays;
+import grid.SymbolTable;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
  * Algorithm X solver for standard Sudoku.
+ * The exact cover matrix is stored bit-sliced by column: every column of an
+ * n x n grid has exactly n rows, so its live rows are the bits of one long,
+ * and the live rows of a column are found and counted a word at a time.  This
+ * bounds the grid size to 64.  Covering a column costs O(n) whatever the
+ * size of the matrix, and the shared matrix takes 12n^3 ints.  Covered rows
+ * and columns are recorded on a trail and undone on backtrack.  The matrix of
+ * a grid size is built once and shared; a solve only copies its live state.
  */
 public class AlgorXSolver extends StdSudokuSolver
 {
@@ -17,9 +24,34 @@ public class AlgorXSolver extends StdSudokuSolver
     int[][] inGrid;
     int inGridSize, subsize;
     int[] allValidNumbers;
-    boolean[][] ecMatrix;
+    SymbolTable symbols;
     int rows, cols;
     int rcc, rvc, cvc, bvc;
+    //the rows with a 1 in column c, colRows[c*n..c*n+n-1] for grid size n
+    int[] colRows;
+    //the four columns of every matrix row, rowCols[4r..4r+3], and the slot of
+    //the row in each of them, rowSlots[4r..4r+3]
+    int[] rowCols, rowSlots;
+    //bit i of colLive[c] is set while row colRows[c*n+i] is live
+    long[] colLive;
+    //doubly linked list of uncovered columns, cols is the list head
+    int[] nextCol, prevCol;
+    //undo trail of removed rows and covered columns
+    int[] rowTrail, colTrail;
+    int rowTop, colTop;
+    int[] solution;
+    int depth;
+    //matrices by grid size, shared by every solver
+    private static final ConcurrentHashMap<Integer, Matrix> MATRICES = new ConcurrentHashMap<>();
+    //work counters, see SolverStats; maxDepth counts only rows chosen by search
+    long nodes, backtracks, covers;
+    int clueDepth, maxDepth;
+    //explicit search stack of nextSolution(): the column branched on at every
+    //level, its live rows still to try and the trail marks to undo the row
+    //chosen there, null before the first call
+    private int[] stackCol, stackRowMark, stackColMark;
+    private long[] stackLive;
+    private int stackDepth;
 
     public AlgorXSolver() {
     } // end of AlgorXSolver()
@@ -28,265 +60,452 @@ public class AlgorXSolver extends StdSudokuSolver
     @Override
     //override method of abstract standard sukodu method to solve the sudoku
     public boolean solve(SudokuGrid grid) 
+    {
+        stats.reset();
+        BitBoard board = propagate(grid);
+        if (board != null)
+        {
+            stats.add(board);
+        }
+        if (board == null)
+        {
+            return false;
+        }
+        if (board.getEmptyCount() == 0)
+        {
+            grid.setGrid(board.toGrid());
+            return true;
+        }
+        //search a propagated copy, the grid only changes once it is solved
+        prepare(propagatedGrid(grid, board));
+
+        boolean status;
+        try 
+        {
+            status = solveSudoku();
+        }
+        finally 
+        {
+            stats.add(nodes, backtracks, covers, 0, maxDepth);
+        }
+        if (status) grid.setGrid(inGrid);
+        
+        return status;
+    } // end of solve()
+
+    @Override
+    //override method to count the solutions of the exact cover matrix
+    public int countSolutions(SudokuGrid grid, int limit) 
+    {
+        stats.reset();
+        prepare(grid);
+        int found = baseSolution() ? countRecursive(limit) : 0;
+        stats.add(nodes, backtracks, covers, 0, maxDepth);
+        return found;
+    } // end of countSolutions()
+
+    @Override
+    public Iterator<int[][]> solutionIterator(SudokuGrid grid) 
+    {
+        // a solver of its own, so this one stays free for other grids
+        AlgorXSolver enumerator = new AlgorXSolver();
+        enumerator.prepare(grid);
+        boolean consistent = enumerator.baseSolution();
+        return new SolutionIterator() 
+        {
+            @Override
+            protected boolean advance() 
+            {
+                return consistent && enumerator.nextSolution();
+            }
+
+            @Override
+            protected int[][] current() 
+            {
+                int[][] outGrid = new int[enumerator.inGridSize][enumerator.inGridSize];
+                enumerator.writeSolution(outGrid);
+                return outGrid;
+            }
+        };
+    } // end of solutionIterator()
+
+    //Method to load the grid and build the exact cover matrix for it
+    void prepare(SudokuGrid grid) 
     {
         inGrid = grid.getGrid();
         inGridSize = grid.getGridSize();
         subsize = (int)Math.sqrt(inGridSize);
         allValidNumbers = grid.getvalidNumbers();
+        symbols = grid.getSymbolTable();
         rcc = inGridSize*inGridSize;
         rvc = rcc + inGridSize*inGridSize;
         cvc = rvc + inGridSize*inGridSize;
         bvc = cvc + inGridSize*inGridSize;
         rows = inGridSize*inGridSize*inGridSize;
         cols = inGridSize*inGridSize*4;
-        ecMatrix = new boolean[rows][cols];
+        //the live rows of a column are one long
+        if (inGridSize > 64) 
+        {
+            throw new IllegalArgumentException("grid size must be at most 64");
+        }
 
         initMatrix();    
-
-        boolean status = solveSudoku();
-        if (status) grid.setGrid(inGrid);
-        
-        return status;
-    } // end of solve()
+    }
 
     
     private boolean solveSudoku() 
     {        
-        boolean[] baseCoveredRows = new boolean[rows];
-        boolean[] baseCoveredCols = new boolean[cols];   
-        
-        ArrayList<Integer> coverBase = baseSolution(baseCoveredRows, baseCoveredCols);        
-        
-        boolean status = sudokuRecursive(coverBase, baseCoveredRows, baseCoveredCols);
+        boolean status = baseSolution() && sudokuRecursive();
         if(status) {
             // set solution in puzzle.
-            for (int temp : coverBase) 
-            {
-                int row = temp / (inGridSize*inGridSize);
-                int col = (temp % (inGridSize*inGridSize)) / inGridSize;
-                int valueAtIndex = (temp % (inGridSize*inGridSize)) % inGridSize;                
-                int value = getValueAtIndex(valueAtIndex);
-                inGrid[row][col] = value;
-            }
+            writeSolution(inGrid);
         }
         return status;
     }
+
+    //Method to write the values of the rows chosen so far into a grid
+    private void writeSolution(int[][] outGrid) 
+    {
+        for (int x = 0; x < depth; x++) 
+        {
+            int temp = solution[x];
+            int row = temp / (inGridSize*inGridSize);
+            int col = (temp % (inGridSize*inGridSize)) / inGridSize;
+            int valueAtIndex = (temp % (inGridSize*inGridSize)) % inGridSize;                
+            int value = getValueAtIndex(valueAtIndex);
+            outGrid[row][col] = value;
+        }
+    }
     
-    //Method to identify the numbers present in original sudoku grid and cover them
-    private ArrayList<Integer> baseSolution(boolean[] row, boolean[] col) 
+    //Method to identify the numbers present in original sudoku grid and cover them,
+    //returns false if two clues conflict
+    private boolean baseSolution() 
     {
-        ArrayList<Integer> parsolution = new ArrayList<>();
         for (int x = 0; x < inGridSize; x++) 
         {
             for (int y = 0; y < inGridSize; y++) 
             {
                 if (inGrid[x][y] != 0) 
                 {
-                    int matrixrow = x * inGridSize * inGridSize + y * inGridSize + getIndexAtValue(inGrid[x][y]);
-                    parsolution.add(matrixrow);
-                    selectrowscols(matrixrow, row, col);
+                    int index = getIndexAtValue(inGrid[x][y]);
+                    if (index < 0) 
+                    {
+                        return false;
+                    }
+                    int matrixrow = x * inGridSize * inGridSize + y * inGridSize + index;
+                    if (!isLive(matrixrow)) 
+                    {
+                        return false;
+                    }
+                    solution[depth++] = matrixrow;
+                    clueDepth++;
+                    selectrowscols(matrixrow);
                 }
             }
         }
         
-        return parsolution;
+        return true;
     }
     
     //Recursive method to solves cover problem for given sudoku
-    private boolean sudokuRecursive(ArrayList<Integer> sol, boolean[] row, boolean[] col) 
+    private boolean sudokuRecursive() 
     {
-        if (isEmpty(row, col)) 
+        nodes++;
+        if ((nodes & SearchLimits.CHECK_MASK) == 0 && limits != null) 
+        {
+            limits.tick();
+        }
+        if (nextCol[cols] == cols) 
         {
             return true;
         }
         
-        ArrayList<Integer> selectrow = new ArrayList<>();
-        int prioritycol = getPriorityColumn(row, col, selectrow);
-        if (selectrow.isEmpty()) 
-        	{
-        		return false;
-        	}
-        // we have the selected column and the selected rows at this point
-        for (int r : selectrow) 
+        int prioritycol = getPriorityColumn();
+        // rows are restored by the undo below, so the live rows of the column
+        // can be taken from one read of its word while branching
+        long live = colLive[prioritycol];
+        while (live != 0) 
         {
-            sol.add(r);
-            boolean[] ndrows = Arrays.copyOf(row, row.length);
-            boolean[] ndcols = Arrays.copyOf(col, col.length);
-            selectrowscols(r, ndrows, ndcols);
-            if (sudokuRecursive(sol, ndrows, ndcols)) 
+            int slot = Long.numberOfTrailingZeros(live);
+            live &= live - 1;
+            int r = colRows[prioritycol * inGridSize + slot];
+            int rowMark = rowTop;
+            int colMark = colTop;
+            solution[depth++] = r;
+            maxDepth = Math.max(maxDepth, depth - clueDepth);
+            selectrowscols(r);
+            if (sudokuRecursive()) 
             	{
             		return true;
             	}
-            sol.remove(Integer.valueOf(r));
+            undo(rowMark, colMark);
+            depth--;
+            backtracks++;
         }
         
         return false;
     }
     
-    //Method to identify the rows and columns to cover from 
-    // the number already present or solved in sudoku grid
-    private void selectrowscols(int selectRow, boolean[] row, boolean[] col) 
+    //Recursive method to count the covers, stops once limit of them are found
+    private int countRecursive(int limit) 
     {
-        for (int x = 0; x < col.length; x++) 
+        nodes++;
+        if ((nodes & SearchLimits.CHECK_MASK) == 0 && limits != null) 
+        {
+            limits.tick();
+        }
+        if (nextCol[cols] == cols) 
+        {
+            return 1;
+        }
+        int prioritycol = getPriorityColumn();
+        int found = 0;
+        long live = colLive[prioritycol];
+        while (live != 0 && found < limit) 
         {
-            if (ecMatrix[selectRow][x]) 
+            int slot = Long.numberOfTrailingZeros(live);
+            live &= live - 1;
+            int r = colRows[prioritycol * inGridSize + slot];
+            int rowMark = rowTop;
+            int colMark = colTop;
+            solution[depth++] = r;
+            maxDepth = Math.max(maxDepth, depth - clueDepth);
+            selectrowscols(r);
+            found += countRecursive(limit - found);
+            undo(rowMark, colMark);
+            depth--;
+            backtracks++;
+        }
+        return found;
+    }
+
+    //Method to advance to the next cover, resuming the search where the
+    //previous call left it, returns false once every cover has been seen.
+    //The chosen rows hold the cover until the next call
+    boolean nextSolution() 
+    {
+        if (stackLive == null) 
+        {
+            int levels = inGridSize * inGridSize - clueDepth + 1;
+            stackCol = new int[levels];
+            stackRowMark = new int[levels];
+            stackColMark = new int[levels];
+            stackLive = new long[levels];
+            if (nextCol[cols] == cols) 
             {
-                col[x] = true;
-                for (int y = 0; y < row.length; y++) 
-                {
-                    if (ecMatrix[y][x]) 
-                    {
-                        row[y] = true;
-                    }
-                }
+                return true;
+            }
+            pushColumn();
+        }
+        while (stackDepth > 0) 
+        {
+            int top = stackDepth - 1;
+            //undo the row chosen at this level by the last call
+            if (depth > clueDepth + top) 
+            {
+                undo(stackRowMark[top], stackColMark[top]);
+                depth--;
+                backtracks++;
+            }
+            long live = stackLive[top];
+            if (live == 0) 
+            {
+                stackDepth--;
+                continue;
+            }
+            stackLive[top] = live & (live - 1);
+            int r = colRows[stackCol[top] * inGridSize + Long.numberOfTrailingZeros(live)];
+            stackRowMark[top] = rowTop;
+            stackColMark[top] = colTop;
+            solution[depth++] = r;
+            maxDepth = Math.max(maxDepth, depth - clueDepth);
+            selectrowscols(r);
+            nodes++;
+            if ((nodes & SearchLimits.CHECK_MASK) == 0 && limits != null) 
+            {
+                limits.tick();
             }
+            if (nextCol[cols] == cols) 
+            {
+                return true;
+            }
+            pushColumn();
         }
+        return false;
     }
-    
-    //Method to identify the columns with minimum number of 1's from exact cover matrix
-    private int getPriorityColumn(boolean[] row, boolean[] col, ArrayList<Integer> selectRows) {
-        int min = Integer.MAX_VALUE;
-        int priCol = -1;
-        
-        for (int x = 0; x < col.length; x++) 
+
+    //Method to push the uncovered column with the fewest live rows onto the
+    //nextSolution() stack
+    private void pushColumn() 
+    {
+        int c = getPriorityColumn();
+        stackCol[stackDepth] = c;
+        stackLive[stackDepth++] = colLive[c];
+    }
+
+    //Method to cover the columns of the selected row and remove every row which
+    //clashes with it, recording both on the trail
+    private void selectrowscols(int selectRow) 
+    {
+        for (int k = 0; k < 4; k++) 
         {
-            if (col[x]) continue;
-            int counter = 0;
-            ArrayList<Integer> rows1s = new ArrayList<>();
-            for (int y = 0; y < row.length; y++) 
+            int c = rowCols[selectRow * 4 + k];
+            nextCol[prevCol[c]] = nextCol[c];
+            prevCol[nextCol[c]] = prevCol[c];
+            colTrail[colTop++] = c;
+            covers++;
+
+            long live = colLive[c];
+            while (live != 0) 
             {
-                if (row[y]) continue;
-                if (ecMatrix[y][x])
+                int r = colRows[c * inGridSize + Long.numberOfTrailingZeros(live)];
+                live &= live - 1;
+                rowTrail[rowTop++] = r;
+                for (int j = r * 4; j < r * 4 + 4; j++) 
                 {
-                    counter++;
-                    rows1s.add(y);
+                    colLive[rowCols[j]] &= ~(1L << rowSlots[j]);
                 }
             }
-            // we have the count of 1s in the column
-            if (counter < min) 
+        }
+    }
+
+    //Method to restore the rows and columns recorded on the trail since the marks
+    private void undo(int rowMark, int colMark) 
+    {
+        while (rowTop > rowMark) 
+        {
+            int r = rowTrail[--rowTop];
+            for (int j = r * 4; j < r * 4 + 4; j++) 
+            {
+                colLive[rowCols[j]] |= 1L << rowSlots[j];
+            }
+        }
+        while (colTop > colMark) 
+        {
+            int c = colTrail[--colTop];
+            covers++;
+            nextCol[prevCol[c]] = c;
+            prevCol[nextCol[c]] = c;
+        }
+    }
+    
+    //Method to identify the uncovered column with minimum number of live 1's
+    int getPriorityColumn() {
+        int priCol = nextCol[cols];
+        int priCount = Long.bitCount(colLive[priCol]);
+        for (int x = nextCol[priCol]; x != cols && priCount > 0; x = nextCol[x]) 
+        {
+            int count = Long.bitCount(colLive[x]);
+            if (count < priCount) 
             {
-                min = counter;
                 priCol = x;
-                selectRows.clear();
-                for (int r : rows1s) selectRows.add(r);
+                priCount = count;
             }
         }
         
         return priCol;
     }
+
+    //Method to check if a matrix row is still live, through its cell column
+    private boolean isLive(int r) 
+    {
+        return (colLive[rowCols[r * 4]] & (1L << rowSlots[r * 4])) != 0;
+    }
     
-    //Method to check if all rows and columns are covered
-    private boolean isEmpty(boolean[] drows, boolean[] dcols) 
+    //Method to set up the exact cover matrix for the grid size: the column rows
+    //and row columns are shared with the template, the live rows and column
+    //list are copied from it, into this solver's arrays when it last solved a
+    //grid of the same size
+    private void initMatrix() 
     {
-        for (int x = 0; x < drows.length; x++) 
+        Matrix template = MATRICES.computeIfAbsent(inGridSize, size -> buildMatrix());
+        colRows = template.colRows;
+        rowCols = template.rowCols;
+        rowSlots = template.rowSlots;
+        if (colLive == null || colLive.length != cols) 
         {
-            if (!drows[x]) 
-            	{
-            		return false;
-            	}
+            colLive = template.colLive.clone();
+            nextCol = template.nextCol.clone();
+            prevCol = template.prevCol.clone();
+            rowTrail = new int[rows];
+            colTrail = new int[cols];
+            solution = new int[inGridSize * inGridSize];
         }
-        for (int y = 0; y < dcols.length; y++) 
+        else 
         {
-            if (!dcols[y]) 
-            	{
-            		return false;
-            	}
+            System.arraycopy(template.colLive, 0, colLive, 0, cols);
+            System.arraycopy(template.nextCol, 0, nextCol, 0, cols + 1);
+            System.arraycopy(template.prevCol, 0, prevCol, 0, cols + 1);
         }
-        
-        return true;
-    }    
-    
-    //Method to construct exact cover problem matrix for given sudoku
-    private void initMatrix() 
+        rowTop = 0;
+        colTop = 0;
+        depth = 0;
+        nodes = backtracks = covers = 0;
+        clueDepth = maxDepth = 0;
+    }
+
+    //Method to construct exact cover problem matrix for the grid size
+    private Matrix buildMatrix() 
     {
-        for (int x = 0; x < rcc; x++) 
-        {                
-            int grow = x / inGridSize;
-            int gcol = x % inGridSize;
-            int inirow = grow * inGridSize* inGridSize + gcol * inGridSize;
-            for (int y = 0; y < inGridSize; y++) 
-            {
-                ecMatrix[inirow+y][x] = true;
-            }
-        }
-        
-        // run row value constraints
-        for (int a = rcc; a < rvc; a++) 
-        {
-            int b = a - rcc;
-            int grow = b / inGridSize;
-            int val = b % inGridSize + 1;
-            int rowindex = grow * inGridSize * inGridSize + val - 1;
-            for (int c = 0; c < inGridSize; c++) 
-            {
-                ecMatrix[rowindex][a] = true;
-                rowindex = rowindex + inGridSize;
-            }
-        }        
-        
-        // run column value constraints
-        for (int jcv = rvc; jcv < cvc; jcv++) 
+        Matrix m = new Matrix();
+        m.colRows = new int[cols * inGridSize];
+        m.rowCols = new int[rows * 4];
+        m.rowSlots = new int[rows * 4];
+        m.colLive = new long[cols];
+        int[] colCount = new int[cols];
+        m.nextCol = new int[cols + 1];
+        m.prevCol = new int[cols + 1];
+
+        for (int r = 0; r < rows; r++) 
         {
-            int j = jcv - rvc;
-            int gridCol = j / inGridSize;
-            int val = j % inGridSize + 1;
-            int rindex = gridCol * inGridSize + val - 1;
-            for (int i = 0; i < inGridSize; i++) 
+            int cell = r / inGridSize;
+            int grow = cell / inGridSize;
+            int gcol = cell % inGridSize;
+            int val = r % inGridSize;
+            int box = (grow / subsize) * subsize + gcol / subsize;
+            m.rowCols[r * 4] = cell;
+            m.rowCols[r * 4 + 1] = rcc + grow * inGridSize + val;
+            m.rowCols[r * 4 + 2] = rvc + gcol * inGridSize + val;
+            m.rowCols[r * 4 + 3] = cvc + box * inGridSize + val;
+            for (int k = 0; k < 4; k++) 
             {
-                ecMatrix[rindex][jcv] = true;
-                rindex += inGridSize*inGridSize;
+                int c = m.rowCols[r * 4 + k];
+                int slot = colCount[c]++;
+                m.colRows[c * inGridSize + slot] = r;
+                m.rowSlots[r * 4 + k] = slot;
+                m.colLive[c] |= 1L << slot;
             }
         }
-        for (int jbv = cvc; jbv < bvc; jbv++) 
+
+        for (int c = 0; c <= cols; c++) 
         {
-            int j = jbv - cvc;
-            int box = j / inGridSize;
-            int gridRow = (box / subsize) * subsize;
-            int gridCol = (box % subsize) * subsize;
-            int val = j % inGridSize + 1;
-            int startingrowindex = gridRow * inGridSize * inGridSize + gridCol * inGridSize + val - 1;
-            for (int m = 0; m < subsize; m++) 
-            {
-                int rowindex = startingrowindex + m * inGridSize * inGridSize;
-                for (int n = 0; n < subsize; n++) 
-                {
-                    ecMatrix[rowindex][jbv] = true;
-                    rowindex += inGridSize;
-                }
-            }
+            m.nextCol[c] = c == cols ? 0 : c + 1;
+            m.prevCol[c] = c == 0 ? cols : c - 1;
         }
+        return m;
     }
     
+    /**
+     * Exact cover matrix of a grid size with nothing covered.
+     */
+    private static class Matrix 
+    {
+        int[] colRows;
+        int[] rowCols, rowSlots;
+        long[] colLive;
+        int[] nextCol, prevCol;
+    } // end of class Matrix
+    
     //method to fetch index of a number from sudoku matrix
     private int getIndexAtValue(int val) 
     {
-        int prev = -1;
-        for (int i = 0; i < allValidNumbers.length; i++) 
-        {
-            if (val == allValidNumbers[i]) 
-            {
-                prev = i;
-                break;
-            }
-        }
-        
-        return prev;
+        return symbols.indexOf(val);
     }
     
     //method to identify the number given the index of it from exact cover matrix 
     private int getValueAtIndex(int index) 
     {
-        int retval = 0;
-        for (int i = 0; i < allValidNumbers.length; i++) 
-        {
-            if (i == index) 
-            {
-                retval = allValidNumbers[i];
-                break;
-            }
-        }
-        
-        return retval;
+        return symbols.valueAt(index);
     }
     
 } // end of class AlgorXSolver
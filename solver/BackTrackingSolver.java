@@ -4,18 +4,18 @@
 
 package solver;
 import grid.SudokuGrid;
+import java.util.Iterator;
 
 
 /**
  * Backtracking solver for standard Sudoku.
+ * Row, column and box occupancy is kept as bitmasks in a BitBoard and the
+ * search always branches on the empty cell with the fewest candidates.
  */
 public class BackTrackingSolver extends StdSudokuSolver
 {
     //Attributes for class BackTrackingSolver.
-    private int inGrid[][];
-    private int inGridSize;
-    private final int isEmpty = 0;
-    private int[] allValidNumbers;
+    BitBoard board;
 
     public BackTrackingSolver() {
     } // end of BackTrackingSolver()
@@ -25,100 +25,80 @@ public class BackTrackingSolver extends StdSudokuSolver
   //override method of abstract standard sukodu method to solve the sudoku
     public boolean solve(SudokuGrid grid) 
     {
-        this.inGrid = grid.getGrid();
-        this.inGridSize = grid.getGridSize();
-        this.allValidNumbers = grid.getvalidNumbers();
-        boolean solved = solveGrid();
+        this.board = new BitBoard(grid);
+        board.setLimits(limits);
+        stats.reset();
+        boolean solved;
+        try 
+        {
+            solved = new Propagator(board).propagate() && board.search();
+        }
+        finally 
+        {
+            stats.add(board);
+        }
         if (solved) 
         {
-            grid.setGrid(inGrid);
+            grid.setGrid(board.toGrid());
         }
 
         return solved;
     } // end of solve()
 
+    @Override
+    //override method to count the solutions on the bitmask engine
+    public int countSolutions(SudokuGrid grid, int limit) 
+    {
+        this.board = new BitBoard(grid);
+        int found = new Propagator(board).propagate() ? board.count(limit) : 0;
+        stats.reset();
+        stats.add(board);
+        return found;
+    } // end of countSolutions()
+
+    @Override
+    public Iterator<int[][]> solutionIterator(SudokuGrid grid) 
+    {
+        BitBoard enumBoard = new BitBoard(grid);
+        new Propagator(enumBoard).propagate();
+        return SolutionIterator.of(enumBoard);
+    } // end of solutionIterator()
+
     //Method to check if given number is already present in the given row
     public boolean isRowValid(int row, int value) 
     {
-        for (int x = 0; x < inGridSize; x++) 
-        {
-            if (inGrid[row][x] == value) 
-            {
-                return false;
-            }
-        }
-
-        return true;
+        return (board.rowUsed[row] & symbolBit(value)) == 0;
     }
 
     //Method to check if given number is already present in the given column
     public boolean isColumnValid(int col, int value) 
     {
-        for (int x = 0; x < inGridSize; x++) 
-        {
-            if (inGrid[x][col] == value) 
-            {
-                return false;
-            }
-        }
-        return true;
+        return (board.colUsed[col] & symbolBit(value)) == 0;
     }
 
   //Method to check if given number is already present in the given box
     public boolean isBlockValid(int row, int col, int value) 
     {
-        int boxSize = (int) Math.sqrt(inGridSize);
-        int boxRowSize = row - row % boxSize;
-        int boxCloumnSize = col - col % boxSize;
-
-        for (int x = boxRowSize; x < boxRowSize + boxSize; x++) 
-        {
-            for (int y = boxCloumnSize; y < boxCloumnSize + boxSize; y++) 
-            {
-                if (inGrid[x][y] == value) 
-                {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return (board.boxUsed[board.boxOf[row * board.size + col]] & symbolBit(value)) == 0;
     }
 
     
     //Method to check if a number satisfies all 3 constraints
     public boolean isPossible(int row, int col, int value) 
     {
-        return isRowValid(row, value) && isColumnValid(col, value) && isBlockValid(row, col, value);
+        return (board.candidates(row * board.size + col) & symbolBit(value)) != 0;
     }
 
   //Recursive method to solve sudoku using backtracking
     public boolean solveGrid() 
     {
-        for (int x = 0; x < inGridSize; x++) 
-        {
-            for (int y = 0; y < inGridSize; y++) 
-            {
-                if (inGrid[x][y] == isEmpty) 
-                {
-                    for (int z = 0; z < inGridSize; z++) 
-                    {
-                        if (isPossible(x, y, allValidNumbers[z])) 
-                        {
-                            inGrid[x][y] = allValidNumbers[z];
-                            if (solveGrid()) 
-                            {
-                                return true;
-                            } 
-                            else 
-                            {
-                                inGrid[x][y] = isEmpty;
-                            }
-                        }
-                    }
-                    return false;
-                }
-            }
-        }
-        return true;
+        return board.search();
+    }
+
+    //Method to convert a value to its bit in the occupancy masks
+    private long symbolBit(int value)
+    {
+        int symbol = board.indexOf(value);
+        return symbol < 0 ? 0 : 1L << symbol;
     }
 } // end of class BackTrackingSolver()
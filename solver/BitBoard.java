@@ -0,0 +1,404 @@
+package solver;
+
+import grid.SudokuGrid;
+import grid.SymbolTable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Bitmask candidate engine used by the backtracking solvers.
+ *
+ * Cells are kept row-major in a flat array holding the symbol index + 1 (0 for
+ * an empty cell), and every row, column and box keeps a bitmask of the symbol
+ * indices already placed in it.  The candidates of a cell are then a couple of
+ * OR/AND operations, and place/remove update the masks in constant time.
+ * An optional CageModel narrows the candidates further to the symbols which
+ * still fit a feasible combination of the cell's Killer Sudoku cage.
+ */
+public class BitBoard
+{
+    //Attributes for class BitBoard.
+    final int size, boxSize, cellCount;
+    final long fullMask;
+    final int[] validNumbers;
+    final SymbolTable symbols;
+    final int[] cells;
+    final long[] rowUsed, colUsed, boxUsed;
+    final int[] rowOf, colOf, boxOf;
+    //unordered list of the empty cells, emptyPos[cell] is its slot in the list
+    final int[] empty, emptyPos;
+    int emptyCount;
+    //false if the clues already break a row, column or box constraint
+    boolean consistent = true;
+    //cage constraints for Killer Sudoku, null for standard Sudoku
+    final CageModel cages;
+    //set from another thread to abandon search(), null if never cancelled
+    AtomicBoolean cancelled;
+    //deadline and node budget checked by the searches, null for none
+    SearchLimits limits;
+    //work counters of the searches on this board, see SolverStats; a copy
+    //starts from zero at the depth of the board it copies
+    long nodes, backtracks, propagations;
+    int depth, maxDepth;
+    //explicit search stack of nextSolution(): the cell branched on at every
+    //level and the candidates still to try there, null before the first call
+    private int[] stackCell;
+    private long[] stackCand;
+    private int stackDepth;
+
+    //Constructor which loads the clues of the given grid
+    public BitBoard(SudokuGrid grid)
+    {
+        this(grid, null);
+    }
+
+    //Constructor which loads the clues of the given grid and keeps the given
+    //cage model up to date as symbols are placed
+    public BitBoard(SudokuGrid grid, CageModel cages)
+    {
+        this.cages = cages;
+        size = grid.getGridSize();
+        //the candidates of a cell are one long, one bit per symbol
+        if (size > 64)
+        {
+            throw new IllegalArgumentException("grid size must be at most 64");
+        }
+        boxSize = (int)Math.sqrt(size);
+        cellCount = size * size;
+        fullMask = size == 64 ? -1L : (1L << size) - 1;
+        validNumbers = grid.getvalidNumbers();
+        symbols = grid.getSymbolTable();
+        cells = new int[cellCount];
+        rowUsed = new long[size];
+        colUsed = new long[size];
+        boxUsed = new long[size];
+        rowOf = new int[cellCount];
+        colOf = new int[cellCount];
+        boxOf = new int[cellCount];
+        empty = new int[cellCount];
+        emptyPos = new int[cellCount];
+
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            rowOf[cell] = cell / size;
+            colOf[cell] = cell % size;
+            boxOf[cell] = (rowOf[cell] / boxSize) * boxSize + colOf[cell] / boxSize;
+            emptyPos[cell] = emptyCount;
+            empty[emptyCount++] = cell;
+        }
+
+        int[][] inGrid = grid.getGrid();
+        for (int x = 0; x < size; x++)
+        {
+            for (int y = 0; y < size; y++)
+            {
+                if (inGrid[x][y] != 0)
+                {
+                    int symbol = indexOf(inGrid[x][y]);
+                    int cell = x * size + y;
+                    if (symbol < 0 || !canPlace(cell, symbol))
+                    {
+                        consistent = false;
+                    }
+                    else
+                    {
+                        place(cell, symbol);
+                    }
+                }
+            }
+        }
+    }
+
+    //Copy constructor, the layout tables are shared and the state copied
+    public BitBoard(BitBoard other)
+    {
+        size = other.size;
+        boxSize = other.boxSize;
+        cellCount = other.cellCount;
+        fullMask = other.fullMask;
+        validNumbers = other.validNumbers;
+        symbols = other.symbols;
+        rowOf = other.rowOf;
+        colOf = other.colOf;
+        boxOf = other.boxOf;
+        cells = other.cells.clone();
+        rowUsed = other.rowUsed.clone();
+        colUsed = other.colUsed.clone();
+        boxUsed = other.boxUsed.clone();
+        empty = other.empty.clone();
+        emptyPos = other.emptyPos.clone();
+        emptyCount = other.emptyCount;
+        consistent = other.consistent;
+        cages = other.cages == null ? null : new CageModel(other.cages);
+        cancelled = other.cancelled;
+        limits = other.limits;
+        depth = other.depth;
+        maxDepth = other.depth;
+    }
+
+    //Method to fetch the symbol index of a value, -1 if it is not a valid number
+    public int indexOf(int value)
+    {
+        return symbols.indexOf(value);
+    }
+
+    //Method to get the bitmask of symbols which can still be placed in a cell
+    public long candidates(int cell)
+    {
+        long mask = ~(rowUsed[rowOf[cell]] | colUsed[colOf[cell]] | boxUsed[boxOf[cell]]) & fullMask;
+        if (cages != null)
+        {
+            mask &= cages.allowed(cell);
+        }
+        return mask;
+    }
+
+    //Method to check a single candidate
+    public boolean canPlace(int cell, int symbol)
+    {
+        return (candidates(cell) & (1L << symbol)) != 0;
+    }
+
+    //Method to place a symbol in an empty cell and update the masks
+    public void place(int cell, int symbol)
+    {
+        long bit = 1L << symbol;
+        cells[cell] = symbol + 1;
+        rowUsed[rowOf[cell]] |= bit;
+        colUsed[colOf[cell]] |= bit;
+        boxUsed[boxOf[cell]] |= bit;
+        if (cages != null)
+        {
+            cages.place(cell, symbol);
+        }
+
+        //swap the cell out of the empty list
+        int pos = emptyPos[cell];
+        int last = empty[--emptyCount];
+        empty[pos] = last;
+        emptyPos[last] = pos;
+        empty[emptyCount] = cell;
+        emptyPos[cell] = emptyCount;
+    }
+
+    //Method to undo place() for a cell
+    public void remove(int cell)
+    {
+        int symbol = cells[cell] - 1;
+        long bit = ~(1L << symbol);
+        cells[cell] = 0;
+        if (cages != null)
+        {
+            cages.remove(cell, symbol);
+        }
+        rowUsed[rowOf[cell]] &= bit;
+        colUsed[colOf[cell]] &= bit;
+        boxUsed[boxOf[cell]] &= bit;
+
+        //swap the cell with the first filled cell past the empty list, which is
+        //the cell itself when undone in LIFO order
+        int pos = emptyPos[cell];
+        int other = empty[emptyCount];
+        empty[pos] = other;
+        emptyPos[other] = pos;
+        empty[emptyCount] = cell;
+        emptyPos[cell] = emptyCount++;
+    }
+
+    //Method to pick the empty cell with the fewest candidates, -1 if the board is full
+    public int selectCell()
+    {
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int x = 0; x < emptyCount; x++)
+        {
+            int cell = empty[x];
+            int count = Long.bitCount(candidates(cell));
+            if (count < bestCount)
+            {
+                best = cell;
+                bestCount = count;
+                if (count <= 1)
+                {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    //Recursive method to fill the board, branching on the most constrained cell
+    public boolean search()
+    {
+        nodes++;
+        if ((nodes & SearchLimits.CHECK_MASK) == 0 && limits != null)
+        {
+            limits.tick();
+        }
+        if (emptyCount == 0)
+        {
+            return true;
+        }
+        if (cancelled != null && cancelled.get())
+        {
+            return false;
+        }
+        int cell = selectCell();
+        long cand = candidates(cell);
+        while (cand != 0)
+        {
+            long bit = cand & -cand;
+            cand ^= bit;
+            place(cell, Long.numberOfTrailingZeros(bit));
+            if (++depth > maxDepth)
+            {
+                maxDepth = depth;
+            }
+            if (search())
+            {
+                return true;
+            }
+            depth--;
+            remove(cell);
+            backtracks++;
+        }
+        return false;
+    }
+
+    //Recursive method to count the solutions, stops once limit of them are found
+    public int count(int limit)
+    {
+        nodes++;
+        if ((nodes & SearchLimits.CHECK_MASK) == 0 && limits != null)
+        {
+            limits.tick();
+        }
+        if (emptyCount == 0)
+        {
+            return 1;
+        }
+        int cell = selectCell();
+        long cand = candidates(cell);
+        int found = 0;
+        while (cand != 0 && found < limit)
+        {
+            long bit = cand & -cand;
+            cand ^= bit;
+            place(cell, Long.numberOfTrailingZeros(bit));
+            if (++depth > maxDepth)
+            {
+                maxDepth = depth;
+            }
+            found += count(limit - found);
+            depth--;
+            remove(cell);
+            backtracks++;
+        }
+        return found;
+    }
+
+    //Method to advance to the next solution, resuming the search where the
+    //previous call left it, returns false once every solution has been seen.
+    //The board holds the solution until the next call
+    public boolean nextSolution()
+    {
+        if (stackCell == null)
+        {
+            stackCell = new int[emptyCount + 1];
+            stackCand = new long[emptyCount + 1];
+            if (!consistent)
+            {
+                return false;
+            }
+            if (emptyCount == 0)
+            {
+                return true;
+            }
+            pushCell();
+        }
+        while (stackDepth > 0)
+        {
+            int top = stackDepth - 1;
+            int cell = stackCell[top];
+            if (cells[cell] != 0)
+            {
+                remove(cell);
+                backtracks++;
+            }
+            long cand = stackCand[top];
+            if (cand == 0)
+            {
+                stackDepth--;
+                continue;
+            }
+            long bit = cand & -cand;
+            stackCand[top] = cand ^ bit;
+            place(cell, Long.numberOfTrailingZeros(bit));
+            nodes++;
+            maxDepth = Math.max(maxDepth, stackDepth);
+            if ((nodes & SearchLimits.CHECK_MASK) == 0 && limits != null)
+            {
+                limits.tick();
+            }
+            if (emptyCount == 0)
+            {
+                return true;
+            }
+            pushCell();
+        }
+        return false;
+    }
+
+    //Method to push the most constrained cell onto the nextSolution() stack
+    private void pushCell()
+    {
+        int cell = selectCell();
+        stackCell[stackDepth] = cell;
+        stackCand[stackDepth++] = candidates(cell);
+    }
+
+    //Method to check the clues and then search for a solution
+    public boolean solve()
+    {
+        return consistent && search();
+    }
+
+    //Method to convert the board back into a 2D grid of values
+    public int[][] toGrid()
+    {
+        int[][] out = new int[size][size];
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            if (cells[cell] != 0)
+            {
+                out[rowOf[cell]][colOf[cell]] = validNumbers[cells[cell] - 1];
+            }
+        }
+        return out;
+    }
+
+    //setter method for the flag which stops search() from another thread
+    public void setCancelled(AtomicBoolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    //setter method for the limits checked by the searches, null for none
+    public void setLimits(SearchLimits limits) {
+        this.limits = limits;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getEmptyCount() {
+        return emptyCount;
+    }
+
+    //getter method which returns the value in a cell, 0 if empty
+    public int getValue(int row, int col) {
+        int symbol = cells[row * size + col];
+        return symbol == 0 ? 0 : validNumbers[symbol - 1];
+    }
+
+} // end of class BitBoard
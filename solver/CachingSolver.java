@@ -0,0 +1,151 @@
+package solver;
+
+import grid.KillerSudokuGrid;
+import grid.SudokuGrid;
+import grid.SymbolTable;
+import java.util.Iterator;
+
+
+/**
+ * Solver which puts a SolutionCache in front of another solver.
+ *
+ * The clues of a standard Sudoku are brought into CanonicalForm and looked up
+ * in the cache; on a hit the cached solution is mapped back through the
+ * inverse transformation, so a puzzle which only differs from an earlier one
+ * by relabelled symbols, transposition or band, stack, row and column
+ * permutations is not solved again.  On a miss the wrapped solver runs and its
+ * solution is cached in canonical form.  Killer Sudoku is passed straight to
+ * the wrapped solver, since relabelling symbols would change the cage sums.
+ */
+public class CachingSolver extends SudokuSolver
+{
+    //Attributes for class CachingSolver.
+    private final SudokuSolver solver;
+    private final SolutionCache cache;
+
+    public CachingSolver(SudokuSolver solver, SolutionCache cache) {
+        this.solver = solver;
+        this.cache = cache;
+    } // end of CachingSolver()
+
+
+    @Override
+    public boolean solve(SudokuGrid grid)
+    {
+        int[] cells = symbolCells(grid);
+        if (cells == null)
+        {
+            return solveInner(grid);
+        }
+        int size = grid.getGridSize();
+        CanonicalForm form = new CanonicalForm(cells, size);
+
+        int[] cached = cache.get(form.getKey());
+        if (cached != null)
+        {
+            //a hit does no search work
+            stats.reset();
+            if (cached.length == 0)
+            {
+                return false;
+            }
+            setSymbolCells(grid, form.fromCanonical(cached));
+            return true;
+        }
+
+        //a search stopped by its limits throws past the cache, so a timed
+        //out puzzle is never recorded as unsolvable
+        boolean solved = solveInner(grid);
+        if (!solved)
+        {
+            cache.put(form.getKey(), new int[0]);
+        }
+        else if (grid.validate())
+        {
+            cache.put(form.getKey(), form.toCanonical(symbolCells(grid)));
+        }
+        return solved;
+    } // end of solve()
+
+
+    //Method to run the wrapped solver under this solver's limits
+    private boolean solveInner(SudokuGrid grid)
+    {
+        solver.limits = limits;
+        try
+        {
+            return solver.solve(grid);
+        }
+        finally
+        {
+            solver.limits = null;
+            stats.copyFrom(solver.getStats());
+        }
+    }
+
+
+    @Override
+    public int countSolutions(SudokuGrid grid, int limit)
+    {
+        int found = solver.countSolutions(grid, limit);
+        stats.copyFrom(solver.getStats());
+        return found;
+    } // end of countSolutions()
+
+
+    @Override
+    public Iterator<int[][]> solutionIterator(SudokuGrid grid)
+    {
+        return solver.solutionIterator(grid);
+    } // end of solutionIterator()
+
+
+    //Method to read the grid as row-major symbol index + 1 (0 if empty), null
+    //for Killer Sudoku or if a cell holds a value which is not a valid number
+    private static int[] symbolCells(SudokuGrid grid)
+    {
+        if (grid instanceof KillerSudokuGrid)
+        {
+            return null;
+        }
+        int size = grid.getGridSize();
+        SymbolTable symbols = grid.getSymbolTable();
+        int[][] values = grid.getGrid();
+        int[] cells = new int[size * size];
+        for (int x = 0; x < size; x++)
+        {
+            for (int y = 0; y < size; y++)
+            {
+                if (values[x][y] != 0)
+                {
+                    int symbol = symbols.indexOf(values[x][y]);
+                    if (symbol < 0)
+                    {
+                        return null;
+                    }
+                    cells[x * size + y] = symbol + 1;
+                }
+            }
+        }
+        return cells;
+    }
+
+    //Method to write row-major symbol index + 1 cells back into the grid
+    private static void setSymbolCells(SudokuGrid grid, int[] cells)
+    {
+        int size = grid.getGridSize();
+        SymbolTable symbols = grid.getSymbolTable();
+        int[][] values = new int[size][size];
+        for (int cell = 0; cell < cells.length; cell++)
+        {
+            values[cell / size][cell % size] = symbols.valueAt(cells[cell] - 1);
+        }
+        grid.setGrid(values);
+    }
+
+    //getter method which returns the shared cache
+    public SolutionCache getCache() {
+        return cache;
+    }
+
+} // end of class CachingSolver
@@ -0,0 +1,232 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Table of the digit combinations a Killer Sudoku cage can take.
+ *
+ * For a cage with k empty cells that still has to add up to total, using only
+ * the symbols in an allowed mask, feasible(k, total, allowed) returns the union
+ * of every k-subset of allowed whose values sum to total, i.e. the symbols
+ * which can still go into any of the empty cells.  For alphabets of up to
+ * DENSE_LIMIT symbols (and small totals) the whole table is precomputed;
+ * larger alphabets fill a memo on demand.  One instance is shared per
+ * alphabet through forAlphabet().
+ *
+ * Both are bounded for long running processes such as the server: only the
+ * TABLE_LIMIT alphabets used last keep their instance, and a memo is cleared
+ * once it holds MEMO_LIMIT entries, after which it fills again on demand.
+ */
+public class CageCombinations
+{
+    //largest alphabet which gets a fully precomputed table
+    static final int DENSE_LIMIT = 10;
+    //alphabets whose instance is kept, least recently used dropped first
+    static final int TABLE_LIMIT = 8;
+    //entries a memo holds before it is cleared
+    static final int MEMO_LIMIT = 1 << 18;
+    private static final LinkedHashMap<String, CageCombinations> tables =
+        new LinkedHashMap<String, CageCombinations>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CageCombinations> eldest)
+            {
+                return size() > TABLE_LIMIT;
+            }
+        };
+
+    //Attributes for class CageCombinations.
+    final int[] validNumbers;
+    final int symbols;
+    final int minTotal, maxTotal, totalRange;
+    //dense[((k * totalRange) + total - minTotal) << symbols | allowed], k >= 1
+    int[] dense;
+    //memo slot k * totalRange + total - minTotal maps allowed to the feasible
+    //mask; slots are created on first use and shared by every thread
+    AtomicReferenceArray<Map<Long, Long>> memo;
+    private final AtomicInteger memoSize = new AtomicInteger();
+
+    //Method to fetch the shared table of an alphabet, building it on first use
+    public static synchronized CageCombinations forAlphabet(int[] validNumbers)
+    {
+        return tables.computeIfAbsent(Arrays.toString(validNumbers), key -> new CageCombinations(validNumbers));
+    }
+
+    private CageCombinations(int[] validNumbers)
+    {
+        this.validNumbers = validNumbers.clone();
+        symbols = validNumbers.length;
+        int low = 0, high = 0;
+        for (int value : validNumbers)
+        {
+            if (value < 0) low += value;
+            else high += value;
+        }
+        minTotal = low;
+        maxTotal = high;
+        totalRange = high - low + 1;
+
+        if (symbols <= DENSE_LIMIT && (long)(symbols + 1) * totalRange << symbols <= (1 << 22))
+        {
+            buildDense();
+        }
+        else
+        {
+            memo = new AtomicReferenceArray<>((symbols + 1) * totalRange);
+        }
+    }
+
+    //Method to precompute the table for every size, total and allowed mask;
+    //each entry only depends on entries for a smaller allowed mask
+    private void buildDense()
+    {
+        int masks = 1 << symbols;
+        dense = new int[(symbols + 1) * totalRange * masks];
+        for (int allowed = 1; allowed < masks; allowed++)
+        {
+            int low = Integer.numberOfTrailingZeros(allowed);
+            int rest = allowed & (allowed - 1);
+            int value = validNumbers[low];
+            for (int k = 1; k <= symbols; k++)
+            {
+                for (int total = minTotal; total <= maxTotal; total++)
+                {
+                    int result = dense[denseIndex(k, total, rest)];
+                    if (k == 1)
+                    {
+                        if (value == total) result |= 1 << low;
+                    }
+                    else if (total - value >= minTotal && total - value <= maxTotal)
+                    {
+                        int with = dense[denseIndex(k - 1, total - value, rest)];
+                        if (with != 0) result |= with | (1 << low);
+                    }
+                    dense[denseIndex(k, total, allowed)] = result;
+                }
+            }
+        }
+    }
+
+    private int denseIndex(int k, int total, int allowed)
+    {
+        return ((k * totalRange) + total - minTotal) << symbols | allowed;
+    }
+
+    //Method to get the union of the symbols of every size-subset of allowed
+    //adding up to total, 0 if there is none
+    public long feasible(int size, int total, long allowed)
+    {
+        if (size == 0)
+        {
+            return 0;
+        }
+        if (size > symbols || total < minTotal || total > maxTotal)
+        {
+            return 0;
+        }
+        if (dense != null)
+        {
+            return dense[denseIndex(size, total, (int)allowed)];
+        }
+        return lookup(size, total, allowed);
+    }
+
+    //Method to check that an empty remainder of size cells can reach total
+    public boolean isFeasible(int size, int total, long allowed)
+    {
+        return size == 0 ? total == 0 : feasible(size, total, allowed) != 0;
+    }
+
+    //Method to list every set of size symbols adding up to total, as bitmasks
+    public List<Long> combinations(int size, int total)
+    {
+        List<Long> out = new ArrayList<>();
+        long all = symbols == 64 ? -1L : (1L << symbols) - 1;
+        collect(size, total, all, 0L, out);
+        return out;
+    }
+
+    //Recursive helper of combinations(), branching on the lowest feasible symbol
+    //either being in the set or not
+    private void collect(int size, int total, long allowed, long chosen, List<Long> out)
+    {
+        if (size == 0)
+        {
+            if (total == 0) out.add(chosen);
+            return;
+        }
+        long feas = feasible(size, total, allowed);
+        if (feas == 0)
+        {
+            return;
+        }
+        long bit = feas & -feas;
+        int low = Long.numberOfTrailingZeros(bit);
+        //symbols below low are in no combination, so drop them with it
+        long above = allowed & ~(bit | (bit - 1));
+        collect(size - 1, total - validNumbers[low], above, chosen | bit, out);
+        collect(size, total, above, chosen, out);
+    }
+
+    //Memoised recurrence used for alphabets too large for the dense table
+    private long lookup(int size, int total, long allowed)
+    {
+        if (allowed == 0 || size > Long.bitCount(allowed) || total < minTotal || total > maxTotal)
+        {
+            return 0;
+        }
+        int slot = size * totalRange + total - minTotal;
+        Map<Long, Long> map = memo.get(slot);
+        if (map == null)
+        {
+            //a thread losing the race uses the map of the winner
+            memo.compareAndSet(slot, null, new ConcurrentHashMap<>());
+            map = memo.get(slot);
+        }
+        Long cached = map.get(allowed);
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        int low = Long.numberOfTrailingZeros(allowed);
+        long rest = allowed & (allowed - 1);
+        int value = validNumbers[low];
+        long result = lookup(size, total, rest);
+        if (size == 1)
+        {
+            if (value == total) result |= 1L << low;
+        }
+        else
+        {
+            long with = lookup(size - 1, total - value, rest);
+            if (with != 0) result |= with | (1L << low);
+        }
+        if (memoSize.incrementAndGet() > MEMO_LIMIT)
+        {
+            clearMemo();
+        }
+        map.put(allowed, result);
+        return result;
+    }
+
+    //Method to drop every memo slot; threads still holding a dropped map only
+    //fill it in vain, their results stay correct
+    private void clearMemo()
+    {
+        for (int slot = 0; slot < memo.length(); slot++)
+        {
+            memo.set(slot, null);
+        }
+        memoSize.set(0);
+    }
+
+} // end of class CageCombinations
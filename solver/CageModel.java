@@ -0,0 +1,176 @@
+package solver;
+
+import grid.SymbolTable;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Compact primitive view of the cages of a Killer Sudoku grid.
+ *
+ * Every cell maps straight to its cage through cellToCage, and each cage keeps
+ * its target, size, running sum, number of filled cells and a bitmask of the
+ * symbol indices already used, so solvers can check and update a cage in
+ * constant time when they place or undo a value.  The symbols still allowed in a
+ * cage come from the shared CageCombinations table of the alphabet.
+ */
+public class CageModel
+{
+    //Attributes for class CageModel.
+    final int gridSize, cageCount;
+    final int[] cellToCage;
+    final int[] target, size, sum, filled;
+    final long[] used;
+    final int[] validNumbers;
+    final long fullMask;
+    final SymbolTable symbols;
+    final CageCombinations combinations;
+    //number of allowed() lookups, see SolverStats
+    long checks;
+
+    //Constructor which indexes the given cages, all sums start at zero
+    public CageModel(List<Cage> cageList, int gridSize, SymbolTable symbols)
+    {
+        this.gridSize = gridSize;
+        this.symbols = symbols;
+        validNumbers = new int[symbols.size()];
+        for (int x = 0; x < validNumbers.length; x++)
+        {
+            validNumbers[x] = symbols.valueAt(x);
+        }
+        cageCount = cageList.size();
+        cellToCage = new int[gridSize * gridSize];
+        target = new int[cageCount];
+        size = new int[cageCount];
+        sum = new int[cageCount];
+        filled = new int[cageCount];
+        used = new long[cageCount];
+        fullMask = validNumbers.length == 64 ? -1L : (1L << validNumbers.length) - 1;
+
+        Arrays.fill(cellToCage, -1);
+        for (int x = 0; x < cageCount; x++)
+        {
+            Cage cage = cageList.get(x);
+            target[x] = cage.getCageTotal();
+            size[x] = cage.getIndexList().size();
+            for (Index index : cage.getIndexList())
+            {
+                cellToCage[index.getX() * gridSize + index.getY()] = x;
+            }
+        }
+
+        combinations = CageCombinations.forAlphabet(validNumbers);
+    }
+
+    //Copy constructor, the cage layout is shared and the running state copied
+    public CageModel(CageModel other)
+    {
+        gridSize = other.gridSize;
+        cageCount = other.cageCount;
+        cellToCage = other.cellToCage;
+        target = other.target;
+        size = other.size;
+        validNumbers = other.validNumbers;
+        fullMask = other.fullMask;
+        symbols = other.symbols;
+        combinations = other.combinations;
+        sum = other.sum.clone();
+        filled = other.filled.clone();
+        used = other.used.clone();
+    }
+
+    //Method to fetch the symbol index of a value, -1 if it is not a valid number
+    public int symbolOf(int value)
+    {
+        return symbols.indexOf(value);
+    }
+
+    //Method to fetch the cage of a cell, -1 if the cell is in no cage
+    public int cageOf(int cell)
+    {
+        return cellToCage[cell];
+    }
+
+    //Method to check if a value can go into a cell without breaking its cage:
+    //no repeated symbol, and the rest of the cage must still be able to reach the target
+    public boolean canPlace(int cell, int symbol)
+    {
+        return (allowed(cell) & (1L << symbol)) != 0;
+    }
+
+    //Method to get the bitmask of the symbols the cage still allows in a cell,
+    //i.e. the unused symbols belonging to some combination of the empty cells
+    //which adds up to the rest of the target
+    public long allowed(int cell)
+    {
+        checks++;
+        int c = cellToCage[cell];
+        if (c < 0)
+        {
+            return fullMask;
+        }
+        return combinations.feasible(size[c] - filled[c], target[c] - sum[c], ~used[c] & fullMask);
+    }
+
+    //Method to record a symbol placed in a cell
+    public void place(int cell, int symbol)
+    {
+        int c = cellToCage[cell];
+        if (c >= 0)
+        {
+            sum[c] += validNumbers[symbol];
+            filled[c]++;
+            used[c] |= 1L << symbol;
+        }
+    }
+
+    //Method to undo place() of a symbol in a cell
+    public void remove(int cell, int symbol)
+    {
+        int c = cellToCage[cell];
+        if (c >= 0)
+        {
+            sum[c] -= validNumbers[symbol];
+            filled[c]--;
+            used[c] &= ~(1L << symbol);
+        }
+    }
+
+    //Method to check that every complete cage adds up to its target
+    public boolean isSatisfied()
+    {
+        for (int c = 0; c < cageCount; c++)
+        {
+            if (filled[c] == size[c] && sum[c] != target[c])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getCageCount() {
+        return cageCount;
+    }
+
+    public int getTarget(int cage) {
+        return target[cage];
+    }
+
+    public int getSize(int cage) {
+        return size[cage];
+    }
+
+    public int getSum(int cage) {
+        return sum[cage];
+    }
+
+    public int getFilled(int cage) {
+        return filled[cage];
+    }
+
+    public long getUsed(int cage) {
+        return used[cage];
+    }
+
+} // end of class CageModel
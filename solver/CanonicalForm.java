@@ -0,0 +1,342 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Canonical form of a standard Sudoku clue set under the symmetries which keep
+ * a grid valid: relabelling the symbols, transposing, permuting the bands (and
+ * stacks) and permuting the rows within a band (and columns within a stack).
+ *
+ * Rows are first ordered by invariants that no symmetry changes: the number
+ * of clues in a row together with the clue counts of the columns its clues
+ * sit in, and for a band the sorted keys of its rows; columns likewise.  Only
+ * the orders left open by ties are enumerated, up to MAX_ORDERS per axis, and
+ * for each candidate the symbols are relabelled in order of first appearance.
+ * The lexicographically smallest result is the canonical form.  Past the cap
+ * two equivalent puzzles may get different forms, which only costs a cache
+ * miss, since the transformation recorded with a form is always exact.
+ */
+public class CanonicalForm
+{
+    //most row (and column) orders tried per orientation
+    static final int MAX_ORDERS = 8;
+
+    //Attributes for class CanonicalForm.
+    final int size, boxSize;
+    //canonical clues row-major, label + 1 or 0 for an empty cell
+    private int[] best;
+    //the puzzle is transposed before its rows and columns are reordered
+    private boolean transposed;
+    //canonical row x is row rowOrder[x] of the (transposed) puzzle, same for columns
+    private int[] rowOrder, colOrder;
+    //labelOf[symbol] is the canonical label of a symbol, symbolOf[label] its inverse
+    private final int[] labelOf, symbolOf;
+    private final String key;
+
+    //Constructor which canonicalises cells, row-major symbol index + 1 or 0 if empty
+    public CanonicalForm(int[] cells, int size)
+    {
+        this.size = size;
+        boxSize = (int)Math.sqrt(size);
+        labelOf = new int[size];
+        symbolOf = new int[size];
+
+        int[] scratch = new int[size * size];
+        int[] labels = new int[size];
+        for (int t = 0; t < 2; t++)
+        {
+            int[] puzzle = t == 0 ? cells : transpose(cells);
+            List<int[]> rowOrders = orders(puzzle, true);
+            List<int[]> colOrders = orders(puzzle, false);
+            for (int[] rows : rowOrders)
+            {
+                for (int[] cols : colOrders)
+                {
+                    if (tryCandidate(puzzle, rows, cols, scratch, labels))
+                    {
+                        transposed = t == 1;
+                        rowOrder = rows;
+                        colOrder = cols;
+                        System.arraycopy(labels, 0, labelOf, 0, size);
+                    }
+                }
+            }
+        }
+
+        //symbols without a clue take the remaining labels in order
+        int next = 0;
+        for (int label : labelOf)
+        {
+            next = Math.max(next, label);
+        }
+        for (int symbol = 0; symbol < size; symbol++)
+        {
+            if (labelOf[symbol] == 0)
+            {
+                labelOf[symbol] = ++next;
+            }
+            symbolOf[labelOf[symbol] - 1] = symbol;
+        }
+
+        char[] chars = new char[best.length];
+        for (int x = 0; x < best.length; x++)
+        {
+            chars[x] = (char)best[x];
+        }
+        key = new String(chars);
+    }
+
+    //Method to relabel one candidate ordering into scratch, abandoning it as
+    //soon as it compares greater than the best so far.  Returns true (with
+    //best and labels updated, labels[symbol] = label, 0 if unused) if smaller
+    private boolean tryCandidate(int[] puzzle, int[] rows, int[] cols, int[] scratch, int[] labels)
+    {
+        Arrays.fill(labels, 0);
+        int next = 0;
+        boolean smaller = best == null;
+        int pos = 0;
+        for (int row : rows)
+        {
+            int base = row * size;
+            for (int col : cols)
+            {
+                int symbol = puzzle[base + col];
+                int label = 0;
+                if (symbol != 0)
+                {
+                    if (labels[symbol - 1] == 0)
+                    {
+                        labels[symbol - 1] = ++next;
+                    }
+                    label = labels[symbol - 1];
+                }
+                if (!smaller)
+                {
+                    if (label > best[pos])
+                    {
+                        return false;
+                    }
+                    smaller = label < best[pos];
+                }
+                scratch[pos++] = label;
+            }
+        }
+        if (!smaller)
+        {
+            return false;
+        }
+        best = scratch.clone();
+        return true;
+    }
+
+    //Method to list the candidate orders of the rows (or columns): bands and
+    //rows sorted by their invariant keys, every arrangement of tied ones
+    private List<int[]> orders(int[] puzzle, boolean rows)
+    {
+        //clue counts of every row and column
+        int[] lineCount = new int[size];
+        int[] crossCount = new int[size];
+        for (int x = 0; x < size; x++)
+        {
+            for (int y = 0; y < size; y++)
+            {
+                if (puzzle[x * size + y] != 0)
+                {
+                    lineCount[rows ? x : y]++;
+                    crossCount[rows ? y : x]++;
+                }
+            }
+        }
+
+        long[] lineKey = new long[size];
+        int[] seen = new int[size];
+        for (int line = 0; line < size; line++)
+        {
+            int count = 0;
+            for (int other = 0; other < size; other++)
+            {
+                if (puzzle[rows ? line * size + other : other * size + line] != 0)
+                {
+                    seen[count++] = crossCount[other];
+                }
+            }
+            lineKey[line] = fold(lineCount[line], seen, count);
+        }
+        long[] bandKey = new long[boxSize];
+        for (int band = 0; band < boxSize; band++)
+        {
+            int[] keys = new int[boxSize];
+            for (int x = 0; x < boxSize; x++)
+            {
+                keys[x] = Long.hashCode(lineKey[band * boxSize + x]);
+            }
+            bandKey[band] = fold(0, keys, boxSize);
+        }
+
+        List<int[]> bandOrders = tieOrders(identity(boxSize, 0), bandKey);
+        List<List<int[]>> lineOrders = new ArrayList<>();
+        for (int band = 0; band < boxSize; band++)
+        {
+            lineOrders.add(tieOrders(identity(boxSize, band * boxSize), lineKey));
+        }
+        List<int[]> orders = new ArrayList<>();
+        for (int[] bands : bandOrders)
+        {
+            combine(bands, 0, new int[size], lineOrders, orders);
+        }
+        return orders;
+    }
+
+    //Recursive method to append every choice of line orders for the bands in order
+    private void combine(int[] bands, int k, int[] order, List<List<int[]>> lineOrders, List<int[]> out)
+    {
+        if (k == bands.length)
+        {
+            out.add(order.clone());
+            return;
+        }
+        for (int[] lines : lineOrders.get(bands[k]))
+        {
+            if (out.size() >= MAX_ORDERS)
+            {
+                return;
+            }
+            System.arraycopy(lines, 0, order, k * boxSize, boxSize);
+            combine(bands, k + 1, order, lineOrders, out);
+        }
+    }
+
+    //Method to sort items by descending key and list every arrangement of
+    //the runs of equal keys, at most MAX_ORDERS of them
+    private static List<int[]> tieOrders(int[] items, long[] keyOf)
+    {
+        Integer[] sorted = new Integer[items.length];
+        for (int x = 0; x < items.length; x++)
+        {
+            sorted[x] = items[x];
+        }
+        Arrays.sort(sorted, (a, b) -> Long.compare(keyOf[b], keyOf[a]));
+        int[] base = new int[items.length];
+        for (int x = 0; x < items.length; x++)
+        {
+            base[x] = sorted[x];
+        }
+        List<int[]> out = new ArrayList<>();
+        permuteRuns(base, 0, keyOf, out);
+        return out;
+    }
+
+    //Recursive method to permute the run of equal keys starting at from, then the later runs
+    private static void permuteRuns(int[] order, int from, long[] keyOf, List<int[]> out)
+    {
+        if (from == order.length)
+        {
+            out.add(order.clone());
+            return;
+        }
+        int end = from + 1;
+        while (end < order.length && keyOf[order[end]] == keyOf[order[from]])
+        {
+            end++;
+        }
+        permuteRun(order, from, from, end, keyOf, out);
+    }
+
+    //Recursive method to place each remaining item of the run [start, end) at position pos
+    private static void permuteRun(int[] order, int start, int pos, int end, long[] keyOf, List<int[]> out)
+    {
+        if (pos == end)
+        {
+            permuteRuns(order, end, keyOf, out);
+            return;
+        }
+        for (int x = pos; x < end && out.size() < MAX_ORDERS; x++)
+        {
+            swap(order, pos, x);
+            permuteRun(order, start, pos + 1, end, keyOf, out);
+            swap(order, pos, x);
+        }
+    }
+
+    private static void swap(int[] a, int x, int y)
+    {
+        int tmp = a[x];
+        a[x] = a[y];
+        a[y] = tmp;
+    }
+
+    private static int[] identity(int length, int offset)
+    {
+        int[] a = new int[length];
+        for (int x = 0; x < length; x++)
+        {
+            a[x] = offset + x;
+        }
+        return a;
+    }
+
+    //Method to combine a head value and the sorted values[0..count) into one key
+    private static long fold(long head, int[] values, int count)
+    {
+        Arrays.sort(values, 0, count);
+        long key = head;
+        for (int x = 0; x < count; x++)
+        {
+            key = key * 1000003 + values[x];
+        }
+        return key;
+    }
+
+    private int[] transpose(int[] cells)
+    {
+        int[] out = new int[cells.length];
+        for (int x = 0; x < size; x++)
+        {
+            for (int y = 0; y < size; y++)
+            {
+                out[y * size + x] = cells[x * size + y];
+            }
+        }
+        return out;
+    }
+
+    //Method to map a grid of the puzzle (symbol index + 1 or 0) into canonical form
+    public int[] toCanonical(int[] cells)
+    {
+        int[] out = new int[cells.length];
+        for (int x = 0; x < size; x++)
+        {
+            for (int y = 0; y < size; y++)
+            {
+                int cell = transposed ? colOrder[y] * size + rowOrder[x] : rowOrder[x] * size + colOrder[y];
+                out[x * size + y] = cells[cell] == 0 ? 0 : labelOf[cells[cell] - 1];
+            }
+        }
+        return out;
+    }
+
+    //Method to map a canonical grid back to the puzzle, the inverse of toCanonical
+    public int[] fromCanonical(int[] canonical)
+    {
+        int[] out = new int[canonical.length];
+        for (int x = 0; x < size; x++)
+        {
+            for (int y = 0; y < size; y++)
+            {
+                int cell = transposed ? colOrder[y] * size + rowOrder[x] : rowOrder[x] * size + colOrder[y];
+                int label = canonical[x * size + y];
+                out[cell] = label == 0 ? 0 : symbolOf[label - 1] + 1;
+            }
+        }
+        return out;
+    }
+
+    //getter method which returns the canonical clues as a hashable key
+    public String getKey() {
+        return key;
+    }
+
+} // end of class CanonicalForm
@@ -0,0 +1,394 @@
+package solver;
+
+import java.util.Arrays;
+
+
+/**
+ * Array backed Dancing Links engine for exact cover problems.
+ *
+ * Instead of a DancingLinkNode object per matrix entry, every node is an index
+ * into parallel int arrays (left/right/up/down/column/rowId), and only the 1s of
+ * the matrix get a node.  Node 0 is the root and nodes 1..numCols are the
+ * column headers; rows are appended with addRow().
+ *
+ * A matrix whose rows are all added can serve as a template: copies of it are
+ * made with the copy constructor and put back to its state with reset(), both
+ * plain array copies, so a solver builds the matrix of a grid size only once.
+ * Only the link arrays are copied, the column and row ids are shared, so no
+ * rows may be added to a copy.
+ */
+public class DancingLinks
+{
+    //Attributes for class DancingLinks.
+    final int numCols;
+    int[] left, right, up, down, column, rowId;
+    int[] colSize;
+    int nodeCount;
+    //first node of every row, indexed by row id
+    int[] rowNode;
+    //row nodes chosen so far, solution[0..depth-1]
+    int[] solution;
+    int depth;
+    //depth of the clue rows once nextSolution() has started, -1 before
+    private int base = -1;
+    //work counters, see SolverStats; maxDepth counts only rows chosen by search
+    long nodes, backtracks, covers;
+    int clueDepth, maxDepth;
+    //deadline and node budget checked by the searches, null for none
+    SearchLimits limits;
+
+    //Constructor with the number of columns and the expected number of 1s
+    public DancingLinks(int numCols, int capacity)
+    {
+        this.numCols = numCols;
+        int total = numCols + 1 + capacity;
+        left = new int[total];
+        right = new int[total];
+        up = new int[total];
+        down = new int[total];
+        column = new int[total];
+        rowId = new int[total];
+        colSize = new int[numCols + 1];
+        rowNode = new int[16];
+        Arrays.fill(rowNode, -1);
+
+        for (int x = 0; x <= numCols; x++)
+        {
+            left[x] = x == 0 ? numCols : x - 1;
+            right[x] = x == numCols ? 0 : x + 1;
+            up[x] = x;
+            down[x] = x;
+            column[x] = x;
+            rowId[x] = -1;
+        }
+        nodeCount = numCols + 1;
+        solution = new int[numCols + 1];
+    }
+
+    //Constructor which copies a template with no rows selected
+    public DancingLinks(DancingLinks template)
+    {
+        numCols = template.numCols;
+        nodeCount = template.nodeCount;
+        left = Arrays.copyOf(template.left, nodeCount);
+        right = Arrays.copyOf(template.right, nodeCount);
+        up = Arrays.copyOf(template.up, nodeCount);
+        down = Arrays.copyOf(template.down, nodeCount);
+        colSize = template.colSize.clone();
+        column = template.column;
+        rowId = template.rowId;
+        rowNode = template.rowNode;
+        solution = new int[numCols + 1];
+    }
+
+    //Method to put a copy back to the state of its template, undoing every
+    //selection and search without allocating
+    public void reset(DancingLinks template)
+    {
+        System.arraycopy(template.left, 0, left, 0, nodeCount);
+        System.arraycopy(template.right, 0, right, 0, nodeCount);
+        System.arraycopy(template.up, 0, up, 0, nodeCount);
+        System.arraycopy(template.down, 0, down, 0, nodeCount);
+        System.arraycopy(template.colSize, 0, colSize, 0, colSize.length);
+        depth = 0;
+        base = -1;
+        nodes = backtracks = covers = 0;
+        clueDepth = maxDepth = 0;
+        limits = null;
+    }
+
+    //Method to append a row with 1s in the given (0 based) columns
+    public void addRow(int id, int[] cols, int count)
+    {
+        if (nodeCount + count > left.length)
+        {
+            grow(Math.max(nodeCount + count, left.length * 2));
+        }
+        if (id >= rowNode.length)
+        {
+            int oldLength = rowNode.length;
+            rowNode = Arrays.copyOf(rowNode, Math.max(id + 1, oldLength * 2));
+            Arrays.fill(rowNode, oldLength, rowNode.length, -1);
+        }
+
+        int first = nodeCount;
+        for (int x = 0; x < count; x++)
+        {
+            int node = nodeCount++;
+            int header = cols[x] + 1;
+            column[node] = header;
+            rowId[node] = id;
+            //insert at the bottom of the column
+            up[node] = up[header];
+            down[node] = header;
+            down[up[header]] = node;
+            up[header] = node;
+            colSize[header]++;
+            //insert at the end of the row
+            left[node] = x == 0 ? node : node - 1;
+            right[node] = first;
+            right[left[node]] = node;
+            left[first] = node;
+        }
+        rowNode[id] = first;
+    }
+
+    //Method to enlarge the node arrays
+    private void grow(int capacity)
+    {
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        up = Arrays.copyOf(up, capacity);
+        down = Arrays.copyOf(down, capacity);
+        column = Arrays.copyOf(column, capacity);
+        rowId = Arrays.copyOf(rowId, capacity);
+    }
+
+    //Method to remove a column header and every row which has a 1 in it
+    public void cover(int header)
+    {
+        covers++;
+        right[left[header]] = right[header];
+        left[right[header]] = left[header];
+        for (int i = down[header]; i != header; i = down[i])
+        {
+            for (int j = right[i]; j != i; j = right[j])
+            {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                colSize[column[j]]--;
+            }
+        }
+    }
+
+    //Method to undo cover() of a column header
+    public void uncover(int header)
+    {
+        covers++;
+        for (int i = up[header]; i != header; i = up[i])
+        {
+            for (int j = left[i]; j != i; j = left[j])
+            {
+                colSize[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[header]] = header;
+        left[right[header]] = header;
+    }
+
+    //Method to check whether a column header is still linked in
+    private boolean isCovered(int header)
+    {
+        return right[left[header]] != header;
+    }
+
+    //Method to force a row into the solution (used for the clues), returns
+    //false if the row conflicts with rows already selected
+    public boolean selectRow(int id)
+    {
+        int first = id < rowNode.length ? rowNode[id] : -1;
+        if (first < 0)
+        {
+            return false;
+        }
+        int node = first;
+        do
+        {
+            if (isCovered(column[node]))
+            {
+                return false;
+            }
+            node = right[node];
+        }
+        while (node != first);
+
+        node = first;
+        do
+        {
+            cover(column[node]);
+            node = right[node];
+        }
+        while (node != first);
+        solution[depth++] = first;
+        clueDepth++;
+        return true;
+    }
+
+    //Method to fetch the uncovered column with the fewest 1s
+    private int fetchPriorityColumn()
+    {
+        int best = right[0];
+        for (int c = right[best]; c != 0; c = right[c])
+        {
+            if (colSize[c] < colSize[best])
+            {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    //Recursive Algorithm X search over the linked matrix
+    public boolean search()
+    {
+        nodes++;
+        if ((nodes & SearchLimits.CHECK_MASK) == 0 && limits != null)
+        {
+            limits.tick();
+        }
+        if (right[0] == 0)
+        {
+            return true;
+        }
+        int c = fetchPriorityColumn();
+        if (colSize[c] == 0)
+        {
+            return false;
+        }
+        cover(c);
+        for (int r = down[c]; r != c; r = down[r])
+        {
+            solution[depth++] = r;
+            maxDepth = Math.max(maxDepth, depth - clueDepth);
+            for (int j = right[r]; j != r; j = right[j])
+            {
+                cover(column[j]);
+            }
+            if (search())
+            {
+                return true;
+            }
+            for (int j = left[r]; j != r; j = left[j])
+            {
+                uncover(column[j]);
+            }
+            depth--;
+            backtracks++;
+        }
+        uncover(c);
+        return false;
+    }
+
+    //Recursive method to count the exact covers, stops once limit of them are
+    //found and leaves the matrix as it was
+    public int count(int limit)
+    {
+        nodes++;
+        if ((nodes & SearchLimits.CHECK_MASK) == 0 && limits != null)
+        {
+            limits.tick();
+        }
+        if (right[0] == 0)
+        {
+            return 1;
+        }
+        int c = fetchPriorityColumn();
+        if (colSize[c] == 0)
+        {
+            return 0;
+        }
+        int found = 0;
+        cover(c);
+        for (int r = down[c]; r != c && found < limit; r = down[r])
+        {
+            solution[depth++] = r;
+            maxDepth = Math.max(maxDepth, depth - clueDepth);
+            for (int j = right[r]; j != r; j = right[j])
+            {
+                cover(column[j]);
+            }
+            found += count(limit - found);
+            for (int j = left[r]; j != r; j = left[j])
+            {
+                uncover(column[j]);
+            }
+            depth--;
+            backtracks++;
+        }
+        uncover(c);
+        return found;
+    }
+
+    //Method to advance to the next exact cover, resuming the search where the
+    //previous call left it, returns false once every cover has been seen.
+    //The rows selected before the first call (the clues) stay selected
+    public boolean nextSolution()
+    {
+        boolean forward = base < 0;
+        if (forward)
+        {
+            base = depth;
+        }
+        while (true)
+        {
+            if (forward)
+            {
+                if (right[0] == 0)
+                {
+                    return true;
+                }
+                int c = fetchPriorityColumn();
+                if (colSize[c] == 0)
+                {
+                    forward = false;
+                    continue;
+                }
+                cover(c);
+                int r = down[c];
+                solution[depth++] = r;
+                nodes++;
+                maxDepth = Math.max(maxDepth, depth - clueDepth);
+                if ((nodes & SearchLimits.CHECK_MASK) == 0 && limits != null)
+                {
+                    limits.tick();
+                }
+                for (int j = right[r]; j != r; j = right[j])
+                {
+                    cover(column[j]);
+                }
+            }
+            else
+            {
+                if (depth == base)
+                {
+                    return false;
+                }
+                //undo the deepest row and move on to the next row of its column
+                int r = solution[--depth];
+                int c = column[r];
+                backtracks++;
+                for (int j = left[r]; j != r; j = left[j])
+                {
+                    uncover(column[j]);
+                }
+                r = down[r];
+                if (r == c)
+                {
+                    uncover(c);
+                    continue;
+                }
+                solution[depth++] = r;
+                nodes++;
+                for (int j = right[r]; j != r; j = right[j])
+                {
+                    cover(column[j]);
+                }
+                forward = true;
+            }
+        }
+    }
+
+    //Method to fetch the row ids of the current (partial) solution
+    public int[] getSolutionRows()
+    {
+        int[] rows = new int[depth];
+        for (int x = 0; x < depth; x++)
+        {
+            rows[x] = rowId[solution[x]];
+        }
+        return rows;
+    }
+
+} // end of class DancingLinks
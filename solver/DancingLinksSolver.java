@@ -5,62 +5,106 @@
 package solver;
 
 import grid.SudokuGrid;
-import grid.StdSudokuGrid;
-import java.util.ArrayList;
+import grid.SymbolTable;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
  * Dancing links solver for standard Sudoku.
+ * The exact cover matrix is built straight into an array backed DancingLinks
+ * engine, one row of four 1s per (cell, value) choice.  The matrix only
+ * depends on the grid size, so it is built once per size as a shared template;
+ * a solve copies it, or resets its previous copy, and selects the clue rows.
  */
 public class DancingLinksSolver extends StdSudokuSolver
 {
-    private class DancingLinkNode {        
-        public DancingLinkNode left;
-        public DancingLinkNode right;
-        public DancingLinkNode up;
-        public DancingLinkNode down;
-        public DancingLinkNode ch;
-        public int mr;    
-        public int mc;     
-        public int numb1s;       
-    }
-
   //Attributes for class DancingLinksSolver.
     int[][] inGrid;
     int inGridSize, subsize;
     int[] validNumbers;
-    boolean[][] ecMatrix;
+    SymbolTable symbols;
     int rows, cols;
     int rcc, rvc, cvc, bvc;
-    DancingLinkNode headNode;
-    DancingLinkNode[][] nodes2d;
-    ArrayList<DancingLinkNode> solution;
+    DancingLinks links;
+    //matrix templates by grid size, never searched themselves
+    private static final ConcurrentHashMap<Integer, DancingLinks> TEMPLATES = new ConcurrentHashMap<>();
 
     public DancingLinksSolver() {
-        headNode = new DancingLinkNode();
-        solution = new ArrayList<>();
     } // end of DancingLinksSolver()
 
 
     @Override
     public boolean solve(SudokuGrid grid) {
-        StdSudokuGrid sGrid = (StdSudokuGrid)grid;
+        stats.reset();
+        BitBoard board = propagate(grid);
+        if (board != null) {
+            stats.add(board);
+        }
+        if (board == null) {
+            return false;
+        }
+        if (board.getEmptyCount() == 0) {
+            grid.setGrid(board.toGrid());
+            return true;
+        }
+        //search a propagated copy, the grid only changes once it is solved
+        prepare(propagatedGrid(grid, board));
+        links.limits = limits;
+        boolean status;
+        try {
+            status = genBaseSol() && links.search();
+        }
+        finally {
+            stats.add(links);
+        }
+        if (status) {
+            generateSolvedSudoku(inGrid);
+            grid.setGrid(inGrid);           
+        }
+        
+        return status;
+    } 
+
+    @Override
+    public int countSolutions(SudokuGrid grid, int limit) {
+        prepare(grid);
+        int found = genBaseSol() ? links.count(limit) : 0;
+        stats.reset();
+        stats.add(links);
+        return found;
+    } // end of countSolutions()
+
+    @Override
+    public Iterator<int[][]> solutionIterator(SudokuGrid grid) {
+        // a solver of its own, so this one stays free for other grids
+        DancingLinksSolver enumerator = new DancingLinksSolver();
+        enumerator.prepare(grid);
+        boolean consistent = enumerator.genBaseSol();
+        return new SolutionIterator() {
+            @Override
+            protected boolean advance() {
+                return consistent && enumerator.links.nextSolution();
+            }
+
+            @Override
+            protected int[][] current() {
+                int[][] outGrid = new int[enumerator.inGridSize][enumerator.inGridSize];
+                enumerator.generateSolvedSudoku(outGrid);
+                return outGrid;
+            }
+        };
+    } // end of solutionIterator()
+
+    //Method to load the grid and build the linked exact cover matrix for it
+    void prepare(SudokuGrid grid) {
         inGrid = grid.getGrid();
         inGridSize = grid.getGridSize();
         subsize = (int)Math.sqrt(inGridSize);
         validNumbers = grid.getvalidNumbers();
+        symbols = grid.getSymbolTable();
         rows = inGridSize*inGridSize*inGridSize;
         cols = inGridSize*inGridSize*4;
-        ecMatrix = new boolean[rows+1][cols];
-        nodes2d = new DancingLinkNode[rows+1][cols];
-        
-        for (int x = 0; x <= rows; x++) 
-        {
-            for (int y = 0; y < cols; y++) 
-            {
-                nodes2d[x][y] = new DancingLinkNode();
-            }
-        }
         
         int temp = inGridSize*inGridSize;
         rcc = temp;
@@ -68,34 +112,32 @@ public class DancingLinksSolver extends StdSudokuSolver
         cvc = rvc + temp;
         bvc = cvc + temp;
         
-        initializeBooleanMatrix();
-        initializeNodeMatrix();
-        genBaseSol();
-        boolean status = solveSudoku(0);
-        if (status) {
-            generateSolvedSudoku();
-            grid.setGrid(inGrid);           
+        DancingLinks template = TEMPLATES.computeIfAbsent(inGridSize, size -> initializeNodeMatrix());
+        if (links != null && links.numCols == template.numCols) {
+            links.reset(template);
         }
-        
-        return status;
-    } 
+        else {
+            links = new DancingLinks(template);
+        }
+    }
 
-    private void generateSolvedSudoku() 
+    //Method to write the values of the selected rows into a grid
+    private void generateSolvedSudoku(int[][] outGrid) 
     {
-        for (DancingLinkNode a : solution) 
+        for (int solrow : links.getSolutionRows()) 
         {
         	int temp = inGridSize*inGridSize;
-            int solrow = a.mr - 1;
             int row = solrow / (temp);
             int col = (solrow % (temp)) / inGridSize;
             int valIndex = (solrow % (temp)) % inGridSize;                
             int val = fetchValueAtIndex(valIndex);
-            inGrid[row][col] = val;
+            outGrid[row][col] = val;
         }        
     }
     
 
-    private void genBaseSol() 
+    //Method to select the rows of the numbers already present in the grid
+    private boolean genBaseSol() 
     {
         for (int x = 0; x < inGridSize; x++) 
         {
@@ -103,242 +145,50 @@ public class DancingLinksSolver extends StdSudokuSolver
             {
                 if (inGrid[x][y] != 0) 
                 {
-                    int matr = x * inGridSize * inGridSize + y * inGridSize + fetchIndexOfElement(inGrid[x][y]) + 1;
-                    int matc = x * inGridSize + y;
-                    DancingLinkNode node = nodes2d[matr][matc];
-                    coverNode(node);
-                    for (DancingLinkNode b = node.right; b != node; b = b.right) 
+                    int index = fetchIndexOfElement(inGrid[x][y]);
+                    if (index < 0 || !links.selectRow(x * inGridSize * inGridSize + y * inGridSize + index)) 
                     {
-                        coverNode(b);
+                        return false;
                     }
-                    solution.add(node);
                 }
             }
         }        
-    }
-    
-    private boolean solveSudoku(int k) 
-    {
-        if(headNode.right == headNode) 
-        {
-            return true;
-        }
-        DancingLinkNode c = fetchPriorityCols(); 
-        coverNode(c); 
-
-        for(DancingLinkNode x = c.down; x != c; x = x.down) 
-        {
-            solution.add(x);
-            for(DancingLinkNode y = x.right; y != x; y = y.right) 
-            {
-                coverNode(y); 
-            }
-            boolean sol = solveSudoku(k+1);
-            if(sol) return true;
-            int sizelist = solution.size();
-            solution.remove(sizelist - 1);
-            c = x.ch;
-            for(DancingLinkNode z = x.left; z != x; z = z.left) 
-            {
-                uncoverNode(z);
-            }
-        }
-        uncoverNode(c);
-        return false;
+        return true;
     }
 
-    //Method to generate exact cover matrix
-    private void initializeNodeMatrix() 
-    {
-        for(int i = 0; i <= rows; i++) 
-        { 
-            for(int j = 0; j < cols; j++) 
-            { 
-                if(ecMatrix[i][j]) 
-                {
-                    if(i != 0) nodes2d[0][j].numb1s++;
-                    nodes2d[i][j].ch = nodes2d[0][j];
-                    nodes2d[i][j].mr = i;  
-                    int a = i;
-                    int b = j;
-                    do 
-                    {
-                        b = (b + cols - 1) % cols;
-                    } 
-                    while(!ecMatrix[a][b] && b != j);                    
-                    nodes2d[i][j].left = nodes2d[i][b]; 
-                    a = i; b = j;
-                    do 
-                    {
-                        b = (b + 1) % cols;
-                    } 
-                    while(!ecMatrix[a][b] && b != j);
-                    nodes2d[i][j].right = nodes2d[i][b];  
-                    a = i; b = j; 
-                    do 
-                    {
-                        a = (a + rows) % (rows+1);
-                    } 
-                    while(!ecMatrix[a][b] && a != i);
-                    nodes2d[i][j].up = nodes2d[a][j]; 
-                    a = i; b = j;
-                    do 
-                    {
-                        a = (a + 1) % (rows + 1);
-                    } 
-                    while(!ecMatrix[a][b] && a != i);
-                    nodes2d[i][j].down = nodes2d[a][j]; 
-                }
-            }
-        }
-        headNode.right = nodes2d[0][0];
-        headNode.left = nodes2d[0][cols-1]; 
-        nodes2d[0][0].left = headNode;
-        nodes2d[0][cols-1].right = headNode;
-    }
-    
-    //Method to cover the cells which have satisfied the constraints
-    private void coverNode(DancingLinkNode c)
+    //Method to generate exact cover matrix, only the four 1s of every
+    //(row, column, value) choice get a node
+    private DancingLinks initializeNodeMatrix() 
     {
-        DancingLinkNode chead = c.ch;
-        chead.left.right = chead.right; 
-        chead.right.left = chead.left; 
-        for(DancingLinkNode i = chead.down; i != chead; i = i.down) 
+        DancingLinks links = new DancingLinks(cols, rows * 4);
+        int[] rowCols = new int[4];
+        for (int r = 0; r < inGridSize; r++) 
         {
-            for(DancingLinkNode j = i.right; j != i; j = j.right) 
-            { 
-                j.up.down = j.down; 
-                j.down.up = j.up; 
-                nodes2d[0][j.mc].numb1s -= 1;
-            } 
-        }         
-    }
-    
-  //Method to backtrack and uncover the cells which do not satisfied the constraints
-    private void uncoverNode(DancingLinkNode c) 
-    {
-        DancingLinkNode chead = c.ch;
-        for(DancingLinkNode i = chead.up; i != chead; i = i.up) 
-        { 
-            for(DancingLinkNode j = i.left; j != i;  j = j.left) 
-            { 
-                j.up.down = j;
-                j.down.up = j;
-                nodes2d[0][j.mc].numb1s += 1;
-            } 
-        } 
-        chead.left.right = chead; 
-        chead.right.left = chead;
-    }
-    
-    //Method to fetch the columns with less number of 1s in exact cover matrix
-    private DancingLinkNode fetchPriorityCols() 
-    {
-        DancingLinkNode c = headNode.right;         
-        for (DancingLinkNode j = c.right; j != headNode; j = j.right) 
-        {
-            if(j.numb1s < c.numb1s) 
-            {
-                c = j; 
-            }
-        }
-        return c;
-    }
-    
-    //Method to initialize the boolean martix
-    private void initializeBooleanMatrix() 
-    {
-        for (int x = 0; x < cols; x++) 
-        {
-            ecMatrix[0][x] = true;
-        }
-        
-        for (int x = 0; x < rcc; x++) 
-        {                
-            int puzzRow = x / inGridSize;
-            int puzzCol = x % inGridSize;
-            int startrow = puzzRow * inGridSize* inGridSize + puzzCol * inGridSize;
-            for (int y = 1; y <= inGridSize; y++) 
+            for (int c = 0; c < inGridSize; c++) 
             {
-                ecMatrix[startrow+y][x] = true;
-            }
-        }
-        
-        // run row value constraints
-        for (int jrv = rcc; jrv < rvc; jrv++) 
-        {
-            int j = jrv - rcc;
-            int puzzRow = j / inGridSize;
-            int value = j % inGridSize + 1;
-            int rIndex = puzzRow * inGridSize * inGridSize + value;
-            for (int x = 0; x < inGridSize; x++) 
-            {
-                ecMatrix[rIndex][jrv] = true;
-                rIndex = rIndex + inGridSize;
-            }
-        }        
-        
-        for (int jcv = rvc; jcv < cvc; jcv++) 
-        {
-            int j = jcv - rvc;
-            int puzzC = j / inGridSize;
-            int value = j % inGridSize + 1;
-            int rIndex = puzzC * inGridSize + value;
-            for (int x = 0; x < inGridSize; x++) 
-            {
-                ecMatrix[rIndex][jcv] = true;
-                rIndex = rIndex + inGridSize*inGridSize;
-            }
-        }
-        
-        for (int jbv = cvc; jbv < bvc; jbv++) 
-        {
-            int j = jbv - cvc;
-            int box = j / inGridSize;
-            int puzzR = (box / subsize) * subsize;
-            int puzzC = (box % subsize) * subsize;
-            int value = j % inGridSize + 1;
-            int startingrowindex = puzzR * inGridSize * inGridSize + puzzC * inGridSize + value;
-            for (int x = 0; x < subsize; x++) 
-            {
-                int rowindex = startingrowindex + x * inGridSize * inGridSize;
-                for (int y = 0; y < subsize; y++) 
+                int box = (r / subsize) * subsize + c / subsize;
+                for (int v = 0; v < inGridSize; v++) 
                 {
-                    ecMatrix[rowindex][jbv] = true;
-                    rowindex = rowindex + inGridSize;
+                    rowCols[0] = r * inGridSize + c;
+                    rowCols[1] = rcc + r * inGridSize + v;
+                    rowCols[2] = rvc + c * inGridSize + v;
+                    rowCols[3] = cvc + box * inGridSize + v;
+                    links.addRow(r * inGridSize * inGridSize + c * inGridSize + v, rowCols, 4);
                 }
             }
         }
+        return links;
     }
     
     //Method to fetch the index of a element from grid
     private int fetchIndexOfElement(int val) 
     {
-        int result = -1;
-        for (int x = 0; x < validNumbers.length; x++) 
-        {
-            if (val == validNumbers[x]) 
-            {
-                result = x;
-                break;
-            }
-        }
-        
-        return result;
+        return symbols.indexOf(val);
     }
     
     //Method to fetch value from the index from grid
     private int fetchValueAtIndex(int index) 
     {
-        int result = 0;
-        for (int x = 0; x < validNumbers.length; x++) 
-        {
-            if (x == index) {
-                result = validNumbers[x];
-                break;
-            }
-        }
-        
-        return result;
+        return symbols.valueAt(index);
     }
 } // end of class DancingLinksSolver
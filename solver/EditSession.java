@@ -0,0 +1,519 @@
+package solver;
+
+import grid.KillerSudokuGrid;
+import grid.SudokuGrid;
+import grid.SymbolTable;
+import java.util.Arrays;
+
+
+/**
+ * Stateful editing session around a puzzle, for front ends which place and
+ * erase values one keystroke at a time.
+ *
+ * Every row, column, box and cage keeps a count of each symbol placed in it
+ * and a bitmask of the symbols present, so place() and erase() update them in
+ * constant time and the candidates of any cell, whether a cell conflicts and
+ * the number of conflicts in the grid are read off the masks in constant time
+ * too; after an edit only the cells sharing a unit with it can have new
+ * candidates, and getChangedCells() lists those whose candidates did change.
+ * Unlike the solver boards, a session accepts values which break
+ * the rules and reports them as conflicts: a symbol placed more than once in
+ * a unit, or a Killer cage that repeats a symbol or can no longer add up to
+ * its total.  The clues of the puzzle cannot be edited.
+ *
+ * verify() checks that the grid can still be completed.  The last solution
+ * found is kept, with a count of the filled cells which disagree with it, so
+ * as long as the edits follow that solution verify() answers in constant
+ * time; otherwise it searches again, trying the previous solution's value
+ * first in every cell, which usually leads straight to a nearby solution.
+ */
+public class EditSession
+{
+    //Attributes for class EditSession.
+    private final SudokuGrid work;
+    private final int[][] values;
+    private final int size, boxSize;
+    private final long fullMask;
+    private final SymbolTable symbols;
+    private final int[] validNumbers;
+    private final boolean[] clue;
+    //symbol index + 1 of every cell, row-major, 0 for an empty cell
+    private final int[] cells;
+    //times each symbol is placed in a unit, at unit * size + symbol, and the
+    //symbols placed in a unit at least once
+    private final int[] rowCount, colCount, boxCount;
+    private final long[] rowUsed, colUsed, boxUsed;
+    //cage layout and running state, cages null for standard Sudoku
+    private final CageModel cages;
+    private final int[] cageCount, cageSum, cageFilled, cageRepeats;
+    private final long[] cageUsed;
+    private final boolean[] cageBroken;
+    //cells of every cage, those of cage c at cageMembers[cageStart[c]..cageStart[c + 1])
+    private final int[] cageStart, cageMembers;
+    //cells sharing a unit with the cell being edited and their candidates
+    //before the edit; seen[cell] == stamp marks a cell already listed
+    private final int[] peers, seen;
+    private final long[] peerCandidates;
+    private int peerCount, stamp;
+    //cells whose candidates the last place() or erase() changed
+    private final int[] changed;
+    private int changedCount;
+    //symbols placed more than once in a unit, plus broken cages
+    private int conflicts;
+    //last solution found by verify(), as cells, null before the first; and
+    //the filled cells which disagree with it
+    private int[] solution;
+    private int mismatches;
+    private final SolverStats stats = new SolverStats();
+
+    //Constructor which starts a session on a copy of the grid, its values become the clues
+    public EditSession(SudokuGrid grid)
+    {
+        work = grid.copy();
+        values = work.getGrid();
+        size = work.getGridSize();
+        boxSize = (int)Math.sqrt(size);
+        fullMask = size == 64 ? -1L : (1L << size) - 1;
+        symbols = work.getSymbolTable();
+        validNumbers = work.getvalidNumbers();
+        int cellCount = size * size;
+        clue = new boolean[cellCount];
+        cells = new int[cellCount];
+        rowCount = new int[size * size];
+        colCount = new int[size * size];
+        boxCount = new int[size * size];
+        rowUsed = new long[size];
+        colUsed = new long[size];
+        boxUsed = new long[size];
+
+        cages = grid instanceof KillerSudokuGrid ? work.getCageModel() : null;
+        int cageTotal = cages == null ? 0 : cages.getCageCount();
+        cageCount = new int[cageTotal * size];
+        cageSum = new int[cageTotal];
+        cageFilled = new int[cageTotal];
+        cageRepeats = new int[cageTotal];
+        cageUsed = new long[cageTotal];
+        cageBroken = new boolean[cageTotal];
+        for (int c = 0; c < cageTotal; c++)
+        {
+            cageBroken[c] = !cages.combinations.isFeasible(cages.size[c], cages.target[c], fullMask);
+            conflicts += cageBroken[c] ? 1 : 0;
+        }
+        //group the cells by cage: count the cells of each, then place them
+        cageStart = new int[cageTotal + 1];
+        cageMembers = new int[cellCount];
+        int[] cageOf = new int[cellCount];
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            cageOf[cell] = cages == null ? -1 : cages.cageOf(cell);
+            if (cageOf[cell] >= 0)
+            {
+                cageStart[cageOf[cell] + 1]++;
+            }
+        }
+        for (int c = 0; c < cageTotal; c++)
+        {
+            cageStart[c + 1] += cageStart[c];
+        }
+        int[] next = cageStart.clone();
+        for (int cell = 0; cell < cellCount; cell++)
+        {
+            if (cageOf[cell] >= 0)
+            {
+                cageMembers[next[cageOf[cell]]++] = cell;
+            }
+        }
+        peers = new int[cellCount];
+        seen = new int[cellCount];
+        peerCandidates = new long[cellCount];
+        changed = new int[cellCount];
+
+        for (int x = 0; x < size; x++)
+        {
+            for (int y = 0; y < size; y++)
+            {
+                if (values[x][y] != 0)
+                {
+                    int symbol = symbols.indexOf(values[x][y]);
+                    if (symbol < 0)
+                    {
+                        throw new IllegalArgumentException(values[x][y] + " is not a valid number");
+                    }
+                    clue[x * size + y] = true;
+                    add(x * size + y, symbol);
+                }
+            }
+        }
+    }
+
+    //Method to place a value in a cell, replacing any value there, 0 erases the
+    //cell; returns false if the value conflicts with another cell or breaks its cage
+    public boolean place(int row, int col, int value)
+    {
+        int cell = editableCell(row, col);
+        if (value == 0)
+        {
+            erase(row, col);
+            return true;
+        }
+        int symbol = symbols.indexOf(value);
+        if (symbol < 0)
+        {
+            throw new IllegalArgumentException(value + " is not a valid number");
+        }
+        listPeers(cell);
+        if (cells[cell] != 0)
+        {
+            remove(cell);
+        }
+        add(cell, symbol);
+        findChanged();
+        return !isConflict(row, col);
+    }
+
+    //Method to empty a cell, nothing happens if it is empty already
+    public void erase(int row, int col)
+    {
+        int cell = editableCell(row, col);
+        changedCount = 0;
+        if (cells[cell] != 0)
+        {
+            listPeers(cell);
+            remove(cell);
+            findChanged();
+        }
+    }
+
+    //Method to check a cell position, returns the row-major cell
+    private int cellAt(int row, int col)
+    {
+        if (row < 0 || row >= size || col < 0 || col >= size)
+        {
+            throw new IllegalArgumentException("no cell (" + row + ", " + col + ") in a grid of size " + size);
+        }
+        return row * size + col;
+    }
+
+    //Method to check a cell position and that it holds no clue
+    private int editableCell(int row, int col)
+    {
+        int cell = cellAt(row, col);
+        if (clue[cell])
+        {
+            throw new IllegalArgumentException("cell (" + row + ", " + col + ") holds a clue");
+        }
+        return cell;
+    }
+
+    //Method to record a symbol placed in an empty cell
+    private void add(int cell, int symbol)
+    {
+        int row = cell / size, col = cell % size;
+        cells[cell] = symbol + 1;
+        values[row][col] = validNumbers[symbol];
+        if (solution != null && solution[cell] != symbol + 1)
+        {
+            mismatches++;
+        }
+        conflicts += count(rowCount, rowUsed, row, symbol, 1);
+        conflicts += count(colCount, colUsed, col, symbol, 1);
+        conflicts += count(boxCount, boxUsed, boxOf(row, col), symbol, 1);
+        countCage(cell, symbol, 1);
+    }
+
+    //Method to undo add() for a filled cell
+    private void remove(int cell)
+    {
+        int row = cell / size, col = cell % size;
+        int symbol = cells[cell] - 1;
+        if (solution != null && solution[cell] != symbol + 1)
+        {
+            mismatches--;
+        }
+        cells[cell] = 0;
+        values[row][col] = 0;
+        conflicts += count(rowCount, rowUsed, row, symbol, -1);
+        conflicts += count(colCount, colUsed, col, symbol, -1);
+        conflicts += count(boxCount, boxUsed, boxOf(row, col), symbol, -1);
+        countCage(cell, symbol, -1);
+    }
+
+    //Method to add delta to the count of a symbol in a unit, returns the change
+    //in the number of symbols placed more than once
+    private int count(int[] count, long[] used, int unit, int symbol, int delta)
+    {
+        int at = unit * size + symbol;
+        int before = count[at];
+        count[at] += delta;
+        if (count[at] > 0)
+        {
+            used[unit] |= 1L << symbol;
+        }
+        else
+        {
+            used[unit] &= ~(1L << symbol);
+        }
+        return (count[at] > 1 ? 1 : 0) - (before > 1 ? 1 : 0);
+    }
+
+    //Method to update the cage of a cell, if any, and whether it is broken
+    private void countCage(int cell, int symbol, int delta)
+    {
+        int c = cages == null ? -1 : cages.cageOf(cell);
+        if (c < 0)
+        {
+            return;
+        }
+        cageRepeats[c] += count(cageCount, cageUsed, c, symbol, delta);
+        cageSum[c] += delta * validNumbers[symbol];
+        cageFilled[c] += delta;
+
+        boolean broken = cageRepeats[c] > 0 || !cages.combinations.isFeasible(
+            cages.size[c] - cageFilled[c], cages.target[c] - cageSum[c], ~cageUsed[c] & fullMask);
+        conflicts += (broken ? 1 : 0) - (cageBroken[c] ? 1 : 0);
+        cageBroken[c] = broken;
+    }
+
+    private int boxOf(int row, int col)
+    {
+        return (row / boxSize) * boxSize + col / boxSize;
+    }
+
+    //Method to list the cell and the cells sharing its row, column, box or cage,
+    //with their candidates before an edit of the cell
+    private void listPeers(int cell)
+    {
+        int row = cell / size, col = cell % size;
+        int boxRow = row - row % boxSize, boxCol = col - col % boxSize;
+        stamp++;
+        peerCount = 0;
+        for (int x = 0; x < size; x++)
+        {
+            addPeer(row * size + x);
+            addPeer(x * size + col);
+            addPeer((boxRow + x / boxSize) * size + boxCol + x % boxSize);
+        }
+        int c = cages == null ? -1 : cages.cageOf(cell);
+        if (c >= 0)
+        {
+            for (int x = cageStart[c]; x < cageStart[c + 1]; x++)
+            {
+                addPeer(cageMembers[x]);
+            }
+        }
+    }
+
+    private void addPeer(int cell)
+    {
+        if (seen[cell] != stamp)
+        {
+            seen[cell] = stamp;
+            peerCandidates[peerCount] = candidatesOf(cell);
+            peers[peerCount++] = cell;
+        }
+    }
+
+    //Method to keep the peers listed by listPeers() whose candidates the edit changed
+    private void findChanged()
+    {
+        changedCount = 0;
+        for (int x = 0; x < peerCount; x++)
+        {
+            if (candidatesOf(peers[x]) != peerCandidates[x])
+            {
+                changed[changedCount++] = peers[x];
+            }
+        }
+    }
+
+    //Method to get the bitmask of the symbol indices an empty cell can take
+    //without a conflict, 0 for a filled cell
+    public long candidates(int row, int col)
+    {
+        return candidatesOf(cellAt(row, col));
+    }
+
+    //Method to get the candidates of a row-major cell, see candidates()
+    private long candidatesOf(int cell)
+    {
+        int row = cell / size, col = cell % size;
+        if (cells[cell] != 0)
+        {
+            return 0;
+        }
+        long mask = ~(rowUsed[row] | colUsed[col] | boxUsed[boxOf(row, col)]) & fullMask;
+        int c = cages == null ? -1 : cages.cageOf(cell);
+        if (c >= 0)
+        {
+            mask &= cageBroken[c] ? ~cageUsed[c]
+                : cages.combinations.feasible(cages.size[c] - cageFilled[c], cages.target[c] - cageSum[c],
+                    ~cageUsed[c] & fullMask);
+        }
+        return mask;
+    }
+
+    //Method to get the values an empty cell can take without a conflict, in symbol order
+    public int[] candidateValues(int row, int col)
+    {
+        long mask = candidates(row, col);
+        int[] out = new int[Long.bitCount(mask)];
+        for (int x = 0; mask != 0; x++)
+        {
+            out[x] = validNumbers[Long.numberOfTrailingZeros(mask)];
+            mask &= mask - 1;
+        }
+        return out;
+    }
+
+    //Method to check if the value of a cell is repeated in its row, column, box
+    //or cage, or its cage can no longer add up to its total
+    public boolean isConflict(int row, int col)
+    {
+        int cell = cellAt(row, col);
+        int symbol = cells[cell] - 1;
+        if (symbol < 0)
+        {
+            return false;
+        }
+        int c = cages == null ? -1 : cages.cageOf(cell);
+        return rowCount[row * size + symbol] > 1 || colCount[col * size + symbol] > 1
+            || boxCount[boxOf(row, col) * size + symbol] > 1 || (c >= 0 && cageBroken[c]);
+    }
+
+    //Method to check that the grid can still be completed, see verify(limits)
+    public boolean isSolvable()
+    {
+        return verify(null) == SolveOutcome.SOLVED;
+    }
+
+    //Method to check that the grid can still be completed within the given
+    //limits, null for none.  SOLVED leaves the completion in getSolution()
+    public SolveOutcome verify(SearchLimits limits)
+    {
+        stats.reset();
+        if (conflicts > 0)
+        {
+            return SolveOutcome.UNSOLVED;
+        }
+        if (solution != null && mismatches == 0)
+        {
+            //every value placed agrees with the last solution, which still completes the grid
+            return SolveOutcome.SOLVED;
+        }
+
+        BitBoard board = cages == null ? new BitBoard(work) : new BitBoard(work, work.getCageModel());
+        board.setLimits(limits);
+        boolean bSolved;
+        try
+        {
+            bSolved = board.consistent && search(board);
+        }
+        catch (SearchTimeoutException e)
+        {
+            stats.add(board);
+            return SolveOutcome.TIMED_OUT;
+        }
+        stats.add(board);
+        if (!bSolved)
+        {
+            return SolveOutcome.UNSOLVED;
+        }
+        solution = board.cells.clone();
+        mismatches = 0;
+        return SolveOutcome.SOLVED;
+    }
+
+    //Recursive method to fill the board like BitBoard.search(), trying the value
+    //of the previous solution first in every cell
+    private boolean search(BitBoard board)
+    {
+        board.nodes++;
+        if ((board.nodes & SearchLimits.CHECK_MASK) == 0 && board.limits != null)
+        {
+            board.limits.tick();
+        }
+        if (board.emptyCount == 0)
+        {
+            return true;
+        }
+        int cell = board.selectCell();
+        long cand = board.candidates(cell);
+        long hint = solution == null || solution[cell] == 0 ? 0 : cand & (1L << (solution[cell] - 1));
+        cand ^= hint;
+        while (hint != 0 || cand != 0)
+        {
+            long bit = hint != 0 ? hint : cand & -cand;
+            if (hint != 0)
+            {
+                hint = 0;
+            }
+            else
+            {
+                cand ^= bit;
+            }
+            board.place(cell, Long.numberOfTrailingZeros(bit));
+            if (++board.depth > board.maxDepth)
+            {
+                board.maxDepth = board.depth;
+            }
+            if (search(board))
+            {
+                return true;
+            }
+            board.depth--;
+            board.remove(cell);
+            board.backtracks++;
+        }
+        return false;
+    }
+
+    //Method to get the last solution found by verify(), null if none
+    public int[][] getSolution()
+    {
+        if (solution == null)
+        {
+            return null;
+        }
+        int[][] out = new int[size][size];
+        for (int cell = 0; cell < solution.length; cell++)
+        {
+            out[cell / size][cell % size] = validNumbers[solution[cell] - 1];
+        }
+        return out;
+    }
+
+    //getter method which returns the current values, 0 for an empty cell; owned by the session
+    public int[][] getGrid() {
+        return values;
+    }
+
+    public int getValue(int row, int col) {
+        cellAt(row, col);
+        return values[row][col];
+    }
+
+    public boolean isClue(int row, int col) {
+        return clue[cellAt(row, col)];
+    }
+
+    //getter method which returns the cells, as row * size + col, whose candidates
+    //the last place() or erase() changed: the edited cell and some of its peers
+    public int[] getChangedCells() {
+        return Arrays.copyOf(changed, changedCount);
+    }
+
+    //getter method which returns the number of symbols repeated in a unit plus the broken cages
+    public int getConflictCount() {
+        return conflicts;
+    }
+
+    public int getGridSize() {
+        return size;
+    }
+
+    //getter method which returns the work counters of the last verify()
+    public SolverStats getStats() {
+        return stats;
+    }
+
+} // end of class EditSession
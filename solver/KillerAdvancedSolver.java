@@ -5,24 +5,18 @@
 package solver;
 
 import grid.SudokuGrid;
-
-import grid.KillerSudokuGrid;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Iterator;
 
 
 /**
  * Your advanced solver for Killer Sudoku.
+ * Searches a BitBoard carrying the grid's CageModel, so row, column, box and
+ * cage checks are all constant time and the most constrained cell is tried first.
  */
 public class KillerAdvancedSolver extends KillerSudokuSolver
 {
-    // // Attributes for class KillerBackTrackingSolver.
-    private int inGrid[][];
-    private int inGridSize;
-    private final int isEmpty = 0;
-    int cageNo = 0;
-    List<Cage> cageList = new ArrayList<>();
-    private int[] validNum;
+    // // Attributes for class KillerAdvancedSolver.
+    private BitBoard board;
 
     public KillerAdvancedSolver() {
     } // end of KillerAdvancedSolver()
@@ -31,180 +25,80 @@ public class KillerAdvancedSolver extends KillerSudokuSolver
     @Override
     public boolean solve(SudokuGrid grid) 
     {
-        this.cageList = grid.getCageList();
-        this.inGrid = grid.getGrid();
-        this.inGridSize = grid.getGridSize();
-        this.validNum = grid.getvalidNumbers();
-        boolean solved = solveGrid();
+        this.board = new BitBoard(grid, grid.getCageModel());
+        board.setLimits(limits);
+        stats.reset();
+        boolean solved;
+        try 
+        {
+            solved = new Propagator(board).propagate() && board.search();
+        }
+        finally 
+        {
+            stats.add(board);
+        }
         if (solved) 
         {
-            grid.setGrid(inGrid);
+            grid.setGrid(board.toGrid());
         }
 
         return solved;
     } // end of solve()
+
+    @Override
+    public int countSolutions(SudokuGrid grid, int limit) 
+    {
+        this.board = new BitBoard(grid, grid.getCageModel());
+        int found = new Propagator(board).propagate() ? board.count(limit) : 0;
+        stats.reset();
+        stats.add(board);
+        return found;
+    } // end of countSolutions()
+
+    @Override
+    public Iterator<int[][]> solutionIterator(SudokuGrid grid) 
+    {
+        BitBoard enumBoard = new BitBoard(grid, grid.getCageModel());
+        new Propagator(enumBoard).propagate();
+        return SolutionIterator.of(enumBoard);
+    } // end of solutionIterator()
     
+    //Method to check if the given number is already present in its row
     public boolean isValidRow(int row, int value) 
     {
-        for (int x = 0; x < inGridSize; x++) 
-        {
-            if (inGrid[row][x] == value) 
-            {
-                return false;
-            }
-        }
-
-        return true;
+        return (board.rowUsed[row] & symbolBit(value)) == 0;
     }
 
     // //Method to check if the given number is already present in its column
     public boolean isValidColumn(int col, int value) 
     {
-        for (int x = 0; x < inGridSize; x++) 
-        {
-            if (inGrid[x][col] == value) 
-            {
-                return false;
-            }
-        }
-        return true;
+        return (board.colUsed[col] & symbolBit(value)) == 0;
     }
 
-    //Method to check if the given number is already present in its cage
+    //Method to check if the given number is already present in its box
     public boolean isValidBox(int row, int col, int value) 
     {
-        int boxSize = (int) Math.sqrt(inGridSize);
-        int rbRow = row - row % boxSize;
-        int rbColumn = col - col % boxSize;
-
-        for (int x = rbRow; x < rbRow + boxSize; x++) 
-        {
-            for (int y = rbColumn; y < rbColumn + boxSize; y++) 
-            {
-                if (inGrid[x][y] == value) 
-                {
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
-    //Method to get expected total of a cage given row and column of one of its cell  
-    private int fetchCageSum(int row, int column) 
-    {
-
-        for (int x = 0; x < cageList.size(); x++) 
-        {
-            for (int y = 0; y < cageList.get(x).getIndexList().size(); y++) 
-            {
-                if (cageList.get(x).getIndexList().get(y).getX() == row && cageList.get(x).getIndexList().get(y).getY() == column) 
-                {
-                    return cageList.get(x).getCageTotal();
-                }
-            }
-        }
-
-        return 0;
-    }
-
-
-
-    //Method to get sum of a cage from solution grid for a given 
-    //row and column combination of one of its cell
-    private int fetchCagepresentSum(int row, int column) 
-    {
-        int sum = 0;
-        for (int x = 0; x < cageList.size(); x++) 
-        {
-            for (int y = 0; y < cageList.get(x).getIndexList().size(); y++) 
-            {
-                if (cageList.get(x).getIndexList().get(y).getX() == row && cageList.get(x).getIndexList().get(y).getY() == column) 
-                {
-
-                    for (int z = 0; z < cageList.get(x).getIndexList().size(); z++) 
-                    {
-                        sum += inGrid[cageList.get(x).getIndexList().get(z).getX()][cageList.get(x).getIndexList().get(z).getY()];
-                    }
-                }
-            }
-        }
-
-        return sum;
-    }
-
-    //Method to check if given cell is empty (filled with zero)
-    private boolean isCageEmpty(int row, int column) 
-    {
-        for (int i = 0; i < cageList.size(); i++) 
-        {
-            for (int j = 0; j < cageList.get(i).getIndexList().size(); j++) 
-            {
-                if (cageList.get(i).getIndexList().get(j).getX() == row && cageList.get(i).getIndexList().get(j).getY() == column) 
-                {
-                	 if (inGrid[cageList.get(i).getIndexList().get(j).getX()][cageList.get(i).getIndexList().get(j).getY()] == 0) 
-                	 {
-
-                         return true;
-
-                     }
-                }
-            }
-        }
-        return false;
-    }
-
-    //Method to check cage constraint   
-    private boolean cageConstratint(int row, int column, int input) 
-    {
-            if (isCageEmpty(row, column)) 
-            {
-                if (fetchCagepresentSum(row, column) < fetchCageSum(row, column)) 
-                {
-                    return true;
-                } 
-                else 
-                {
-                    return false;
-                }
-            } 
-            return false;
+        return (board.boxUsed[board.boxOf[row * board.size + col]] & symbolBit(value)) == 0;
     }
 
     //Method to check if a given value satisfies all constrains of sudoku
     public boolean isSatisfied(int row, int col, int value) 
     {
-        return isValidRow(row, value) && isValidColumn(col, value) && isValidBox(row, col, value) && cageConstratint(row, col, value);
+        int symbol = board.indexOf(value);
+        return symbol >= 0 && board.canPlace(row * board.size + col, symbol);
     }
+
     //Recursive method to solve the sudoku using backtracking
     public boolean solveGrid() 
     {
-        for (int x = 0; x < inGridSize; x++) 
-        {
-            for (int y = 0; y < inGridSize; y++) 
-            {
-                if (inGrid[x][y] == isEmpty) 
-                {
-                    for (int z = 0; z < inGridSize; z++) 
-                    {
-                        if (isSatisfied(x, y, validNum[z])) 
-                        {
-                            inGrid[x][y] = validNum[z];
-                            if (solveGrid()) 
-                            {
-                                return true;
-                            } 
-                            else 
-                            {
-                                inGrid[x][y] = isEmpty;
-                            }
-                        }
-                    }
-                    return false;
-                }
-            }
-        }
-        return true;
+        return board.search();
+    }
+
+    //Method to convert a value to its bit in the occupancy masks
+    private long symbolBit(int value)
+    {
+        int symbol = board.indexOf(value);
+        return symbol < 0 ? 0 : 1L << symbol;
     }
 
 } // end of class KillerAdvancedSolver
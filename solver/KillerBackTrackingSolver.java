@@ -6,6 +6,7 @@ package solver;
 import grid.SudokuGrid;
 import grid.KillerSudokuGrid;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 
@@ -20,7 +21,17 @@ public class KillerBackTrackingSolver extends KillerSudokuSolver
     private final int isEmpty = 0;
     int cageNo = 0;
     List<Cage> cageList = new ArrayList<>();
+    private CageModel cages;
     private int[] validNum;
+    //work counters of the last solve, see SolverStats
+    private long nodes, backtracks;
+    private int depth, maxDepth;
+    //solutions to find before the search stops, and found so far
+    private int limit, found;
+    //explicit search stack of nextSolution(): the cell filled at every level
+    //and the next symbol index to try there, null before the first call
+    private int[] stackCell, stackNext;
+    private int stackDepth;
 
     public KillerBackTrackingSolver() {
     } // end of KillerBackTrackingSolver()
@@ -29,11 +40,35 @@ public class KillerBackTrackingSolver extends KillerSudokuSolver
     @Override
     public boolean solve(SudokuGrid grid) 
     {
-        this.cageList = grid.getCageList();
-        this.inGrid = grid.getGrid();
-        this.inGridSize = grid.getGridSize();
-        this.validNum = grid.getvalidNumbers();
-        boolean solved = solveGrid();
+        stats.reset();
+        if (!load(grid, grid.getGrid())) 
+        {
+            return false;
+        }
+        // the search fills the grid in place, keep the clues to restore it if
+        // the search is stopped part way
+        int[][] clues = new int[inGridSize][];
+        for (int x = 0; x < inGridSize; x++) 
+        {
+            clues[x] = inGrid[x].clone();
+        }
+        boolean solved;
+        try 
+        {
+            solved = solveGrid();
+        }
+        catch (SearchTimeoutException e) 
+        {
+            for (int x = 0; x < inGridSize; x++) 
+            {
+                System.arraycopy(clues[x], 0, inGrid[x], 0, inGridSize);
+            }
+            throw e;
+        }
+        finally 
+        {
+            stats.add(nodes, backtracks, 0, cages.checks, maxDepth);
+        }
         if (solved) 
         {
             grid.setGrid(inGrid);
@@ -42,6 +77,95 @@ public class KillerBackTrackingSolver extends KillerSudokuSolver
         return solved;
 
     } // end of solve()
+
+    @Override
+    //override method to count the solutions, searching a copy of the grid
+    public int countSolutions(SudokuGrid grid, int limit) 
+    {
+        stats.reset();
+        int[][] clues = grid.getGrid();
+        int[][] cells = new int[clues.length][];
+        for (int x = 0; x < clues.length; x++) 
+        {
+            cells[x] = clues[x].clone();
+        }
+        if (!load(grid, cells)) 
+        {
+            return 0;
+        }
+        try 
+        {
+            return solveGrid(limit);
+        }
+        finally 
+        {
+            stats.add(nodes, backtracks, 0, cages.checks, maxDepth);
+        }
+    } // end of countSolutions()
+
+    @Override
+    public Iterator<int[][]> solutionIterator(SudokuGrid grid) 
+    {
+        // a solver of its own searching a copy of the cells, so neither this
+        // solver nor the grid is changed
+        KillerBackTrackingSolver enumerator = new KillerBackTrackingSolver();
+        int[][] clues = grid.getGrid();
+        int[][] cells = new int[clues.length][];
+        for (int x = 0; x < clues.length; x++) 
+        {
+            cells[x] = clues[x].clone();
+        }
+        boolean consistent = enumerator.load(grid, cells);
+        return new SolutionIterator() 
+        {
+            @Override
+            protected boolean advance() 
+            {
+                return consistent && enumerator.nextSolution();
+            }
+
+            @Override
+            protected int[][] current() 
+            {
+                int[][] outGrid = new int[cells.length][];
+                for (int x = 0; x < cells.length; x++) 
+                {
+                    outGrid[x] = cells[x].clone();
+                }
+                return outGrid;
+            }
+        };
+    } // end of solutionIterator()
+
+    //Method to load the cages of the grid and the cells to search, returns
+    //false if a clue is not a valid number, as then there is no solution
+    private boolean load(SudokuGrid grid, int[][] cells) 
+    {
+        this.cageList = grid.getCageList();
+        this.inGrid = cells;
+        this.inGridSize = grid.getGridSize();
+        this.validNum = grid.getvalidNumbers();
+        this.cages = grid.getCageModel();
+        // values already in the grid count towards their cages
+        for (int x = 0; x < inGridSize; x++) 
+        {
+            for (int y = 0; y < inGridSize; y++) 
+            {
+                if (inGrid[x][y] != isEmpty) 
+                {
+                    int symbol = cages.symbolOf(inGrid[x][y]);
+                    if (symbol < 0) 
+                    {
+                        return false;
+                    }
+                    cages.place(x * inGridSize + y, symbol);
+                }
+            }
+        }
+        nodes = backtracks = 0;
+        depth = maxDepth = 0;
+        return true;
+    }
     
     // //Method to check if the given number is already present in its row
     public boolean isValidRow(int row, int value) 
@@ -97,110 +221,111 @@ public class KillerBackTrackingSolver extends KillerSudokuSolver
     }
     
 
-    //Method to get expected total of a cage given row and column of one of its cell  
-    private int checkCageSum(int row, int column) 
+    //Method to check cage constraint through the cell-to-cage index, a value
+    //outside the valid numbers never satisfies it
+    private boolean cageConstratint(int cRow, int cCol, int value) 
     {
+        int symbol = cages.symbolOf(value);
+        return symbol >= 0 && cages.canPlace(cRow * inGridSize + cCol, symbol);
+    }
 
-        for (int x = 0; x < cageList.size(); x++) 
+    
+    //Method to advance to the next solution, resuming the search where the
+    //previous call left it, returns false once every solution has been seen.
+    //The grid holds the solution until the next call
+    boolean nextSolution() 
+    {
+        if (stackCell == null) 
         {
-            for (int y = 0; y < cageList.get(x).getIndexList().size(); y++) 
+            stackCell = new int[inGridSize * inGridSize + 1];
+            stackNext = new int[inGridSize * inGridSize + 1];
+            if (!pushCell()) 
             {
-                if (cageList.get(x).getIndexList().get(y).getX() == row && cageList.get(x).getIndexList().get(y).getY() == column) 
-                {
-                    return cageList.get(x).getCageTotal();
-                }
+                return true;
             }
         }
-
-        return 0;
-    }
-
-
-
-    //Method to check if given cage is empty (filled with zero)
-    private boolean isCageEmpty(int row, int column) 
-    {
-        for (int x = 0; x < cageList.size(); x++) 
+        while (stackDepth > 0) 
         {
-            for (int y = 0; y < cageList.get(x).getIndexList().size(); y++) 
+            int top = stackDepth - 1;
+            int m = stackCell[top] / inGridSize;
+            int n = stackCell[top] % inGridSize;
+            //take back the value placed at this level by the last call
+            if (inGrid[m][n] != isEmpty) 
             {
-                if (cageList.get(x).getIndexList().get(y).getX() == row && cageList.get(x).getIndexList().get(y).getY() == column) 
-                {
-
-                    for (int z = 0; z < cageList.get(x).getIndexList().size(); z++) 
-                    {
-
-                        if (z == cageList.get(x).getIndexList().size() - 1) 
-                        {
-                            return false;
-                        }
-
-                        if (inGrid[cageList.get(x).getIndexList().get(z).getX()][cageList.get(x).getIndexList().get(z).getY()] == 0) 
-                        {
-
-                            return true;
-
-                        }
-                    }
-                }
+                inGrid[m][n] = isEmpty;
+                cages.remove(stackCell[top], stackNext[top] - 1);
+                depth--;
+                backtracks++;
+            }
+            int o = stackNext[top];
+            while (o < inGridSize && !isSatisfied(m, n, validNum[o])) 
+            {
+                o++;
+            }
+            if (o == inGridSize) 
+            {
+                stackDepth--;
+                continue;
+            }
+            stackNext[top] = o + 1;
+            inGrid[m][n] = validNum[o];
+            cages.place(stackCell[top], o);
+            maxDepth = Math.max(maxDepth, ++depth);
+            nodes++;
+            if ((nodes & SearchLimits.CHECK_MASK) == 0 && limits != null) 
+            {
+                limits.tick();
+            }
+            if (!pushCell()) 
+            {
+                return true;
             }
         }
         return false;
     }
-    
-    //Method to get sum of a cage from solution grid for a given 
-    //row and column combination of one of its cell
-    private int checkCagePresentSum(int row, int column) 
+
+    //Method to push the next empty cell in row-major order onto the
+    //nextSolution() stack, returns false if the grid is full
+    private boolean pushCell() 
     {
-        int sum = 0;
-        for (int x = 0; x < cageList.size(); x++) 
+        int from = stackDepth == 0 ? 0 : stackCell[stackDepth - 1] + 1;
+        for (int cell = from; cell < inGridSize * inGridSize; cell++) 
         {
-            for (int y = 0; y < cageList.get(x).getIndexList().size(); y++) 
+            if (inGrid[cell / inGridSize][cell % inGridSize] == isEmpty) 
             {
-                if (cageList.get(x).getIndexList().get(y).getX() == row && cageList.get(x).getIndexList().get(y).getY() == column) {
-
-                    for (int z = 0; z < cageList.get(x).getIndexList().size(); z++) 
-                    {
-                        sum = sum + inGrid[cageList.get(x).getIndexList().get(z).getX()][cageList.get(x).getIndexList().get(z).getY()];
-                    }
-                }
+                stackCell[stackDepth] = cell;
+                stackNext[stackDepth++] = 0;
+                return true;
             }
         }
+        return false;
+    }
 
-        return sum;
+    //Method to solve the sudoku using backtracking, the grid holds the solution
+    public boolean solveGrid() 
+    {
+        return solveGrid(1) == 1;
     }
 
-    //Method to check cage constraint   
-    private boolean cageConstratint(int cRow, int cCol, int value) 
+    //Method to count the solutions using backtracking, stops once limit of them
+    //are found and then the grid holds the last one
+    public int solveGrid(int limit) 
     {
-            if (isCageEmpty(cRow, cCol)) 
-            {
-                if (checkCagePresentSum(cRow, cCol) < checkCageSum(cRow, cCol)) 
-                {
-                    return true;
-                } 
-                else 
-                {
-                    return false;
-                }
-            } 
-            else 
-            {
-                if (checkCagePresentSum(cRow, cCol) + value == checkCageSum(cRow, cCol)) 
-                {
-                    return true;
-                } 
-                else 
-                {
-                    return false;
-                }
-            }
+        this.limit = limit;
+        found = 0;
+        fillGrid();
+        return found;
     }
 
-    
-    //Recursive method to solve the sudoku using backtracking
-    public boolean solveGrid() 
+    //Recursive method to fill the empty cells, returns true once limit
+    //solutions are found
+    private boolean fillGrid() 
     {
+        nodes++;
+        if ((nodes & SearchLimits.CHECK_MASK) == 0 && limits != null) 
+        {
+            limits.tick();
+        }
         for (int m = 0; m < inGridSize; m++) 
         {
             for (int n = 0; n < inGridSize; n++) 
@@ -212,13 +337,18 @@ public class KillerBackTrackingSolver extends KillerSudokuSolver
                         if (isSatisfied(m, n, validNum[o])) 
                         {
                             inGrid[m][n] = validNum[o];
-                            if (solveGrid()) 
+                            cages.place(m * inGridSize + n, o);
+                            maxDepth = Math.max(maxDepth, ++depth);
+                            if (fillGrid()) 
                             {
                                 return true;
                             } 
                             else 
                             {
                                 inGrid[m][n] = isEmpty;
+                                cages.remove(m * inGridSize + n, o);
+                                depth--;
+                                backtracks++;
                             }
                         }
                     }
@@ -226,7 +356,8 @@ public class KillerBackTrackingSolver extends KillerSudokuSolver
                 }
             }
         }
-        return true;
+        found++;
+        return found >= limit;
     }
 
 } // end of class KillerBackTrackingSolver()
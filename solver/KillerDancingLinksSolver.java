@@ -0,0 +1,206 @@
+/*
+ * @author Jeffrey Chan & Minyi Li, RMIT 2020
+ */
+
+package solver;
+
+import grid.SudokuGrid;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * Dancing links solver for Killer Sudoku.
+ *
+ * Besides the usual cell, row, column and box columns, every cage gets one
+ * column saying "pick one combination" and one column per symbol.  A
+ * combination row covers the cage column and the symbols the combination
+ * does not use, and a (cell, value) row covers the symbol column of its cage,
+ * so each used symbol must come from exactly one cell of the cage.  The cage
+ * sums are then settled by the exact cover search itself.
+ */
+public class KillerDancingLinksSolver extends KillerSudokuSolver
+{
+    //Attributes for class KillerDancingLinksSolver.
+    int[][] inGrid;
+    int inGridSize, subsize;
+    int[] validNumbers;
+    int rcc, rvc, cvc, bvc;
+    //first cage column and first cage-symbol column
+    int cagec, cagevc;
+    CageModel cages;
+    DancingLinks links;
+
+    public KillerDancingLinksSolver() {
+    } // end of KillerDancingLinksSolver()
+
+
+    @Override
+    public boolean solve(SudokuGrid grid)
+    {
+        prepare(grid);
+        links.limits = limits;
+        stats.reset();
+        boolean status;
+        try
+        {
+            status = genBaseSol() && links.search();
+        }
+        finally
+        {
+            stats.add(links);
+        }
+        if (status)
+        {
+            generateSolvedSudoku(inGrid);
+            grid.setGrid(inGrid);
+        }
+
+        return status;
+    } // end of solve()
+
+    @Override
+    public int countSolutions(SudokuGrid grid, int limit)
+    {
+        prepare(grid);
+        int found = genBaseSol() ? links.count(limit) : 0;
+        stats.reset();
+        stats.add(links);
+        return found;
+    } // end of countSolutions()
+
+    @Override
+    public Iterator<int[][]> solutionIterator(SudokuGrid grid)
+    {
+        //a solver of its own, so this one stays free for other grids
+        KillerDancingLinksSolver enumerator = new KillerDancingLinksSolver();
+        enumerator.prepare(grid);
+        boolean consistent = enumerator.genBaseSol();
+        return new SolutionIterator()
+        {
+            @Override
+            protected boolean advance()
+            {
+                return consistent && enumerator.links.nextSolution();
+            }
+
+            @Override
+            protected int[][] current()
+            {
+                int[][] outGrid = new int[enumerator.inGridSize][enumerator.inGridSize];
+                enumerator.generateSolvedSudoku(outGrid);
+                return outGrid;
+            }
+        };
+    } // end of solutionIterator()
+
+    //Method to load the grid and build the linked exact cover matrix for it
+    void prepare(SudokuGrid grid)
+    {
+        inGrid = grid.getGrid();
+        inGridSize = grid.getGridSize();
+        subsize = (int)Math.sqrt(inGridSize);
+        validNumbers = grid.getvalidNumbers();
+        cages = grid.getCageModel();
+
+        int temp = inGridSize * inGridSize;
+        rcc = temp;
+        rvc = rcc + temp;
+        cvc = rvc + temp;
+        bvc = cvc + temp;
+        cagec = bvc;
+        cagevc = cagec + cages.cageCount;
+
+        initializeNodeMatrix();
+    }
+
+    //Method to generate the exact cover matrix of cell rows and cage combination rows
+    private void initializeNodeMatrix()
+    {
+        int cols = cagevc + cages.cageCount * inGridSize;
+        links = new DancingLinks(cols, inGridSize * inGridSize * inGridSize * 5);
+        int[] rowCols = new int[inGridSize + 1];
+        long all = cages.fullMask;
+
+        for (int r = 0; r < inGridSize; r++)
+        {
+            for (int c = 0; c < inGridSize; c++)
+            {
+                int cell = r * inGridSize + c;
+                int box = (r / subsize) * subsize + c / subsize;
+                int cage = cages.cageOf(cell);
+                //symbols outside every combination of the cage never get a row
+                long allowed = cage < 0 ? all
+                    : cages.combinations.feasible(cages.size[cage], cages.target[cage], all);
+                for (int v = 0; v < inGridSize; v++)
+                {
+                    if ((allowed & (1L << v)) == 0) continue;
+                    rowCols[0] = cell;
+                    rowCols[1] = rcc + r * inGridSize + v;
+                    rowCols[2] = rvc + c * inGridSize + v;
+                    rowCols[3] = cvc + box * inGridSize + v;
+                    int count = 4;
+                    if (cage >= 0)
+                    {
+                        rowCols[count++] = cagevc + cage * inGridSize + v;
+                    }
+                    links.addRow(cell * inGridSize + v, rowCols, count);
+                }
+            }
+        }
+
+        int id = inGridSize * inGridSize * inGridSize;
+        for (int cage = 0; cage < cages.cageCount; cage++)
+        {
+            List<Long> combinations = cages.combinations.combinations(cages.size[cage], cages.target[cage]);
+            for (long combination : combinations)
+            {
+                int count = 0;
+                rowCols[count++] = cagec + cage;
+                for (int v = 0; v < inGridSize; v++)
+                {
+                    if ((combination & (1L << v)) == 0)
+                    {
+                        rowCols[count++] = cagevc + cage * inGridSize + v;
+                    }
+                }
+                links.addRow(id++, rowCols, count);
+            }
+        }
+    }
+
+    //Method to select the rows of the numbers already present in the grid
+    private boolean genBaseSol()
+    {
+        for (int x = 0; x < inGridSize; x++)
+        {
+            for (int y = 0; y < inGridSize; y++)
+            {
+                if (inGrid[x][y] != 0)
+                {
+                    int index = cages.symbolOf(inGrid[x][y]);
+                    if (index < 0 || !links.selectRow((x * inGridSize + y) * inGridSize + index))
+                    {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    //Method to write the chosen cell rows back into the grid
+    private void generateSolvedSudoku(int[][] outGrid)
+    {
+        int cellRows = inGridSize * inGridSize * inGridSize;
+        for (int solrow : links.getSolutionRows())
+        {
+            if (solrow < cellRows)
+            {
+                int cell = solrow / inGridSize;
+                outGrid[cell / inGridSize][cell % inGridSize] = validNumbers[solrow % inGridSize];
+            }
+        }
+    }
+
+} // end of class KillerDancingLinksSolver
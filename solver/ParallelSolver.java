@@ -0,0 +1,234 @@
+/*
+ * @author Jeffrey Chan & Minyi Li, RMIT 2020
+ */
+
+package solver;
+
+import grid.KillerSudokuGrid;
+import grid.SudokuGrid;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Fork/join backtracking solver for both standard and Killer Sudoku.
+ *
+ * The top levels of the search tree are split into tasks, each owning a copy
+ * of the BitBoard with one more cell filled, and the pool's work stealing
+ * spreads them over the cores.  Below the split depth a task runs the plain
+ * sequential search.  The first task to find a solution raises a shared flag
+ * which every other task checks, so its siblings stop straight away.  The
+ * cells forced by constraint propagation are filled before the first split.
+ */
+public class ParallelSolver extends SudokuSolver
+{
+    //number of search tree levels turned into separate tasks
+    static final int DEFAULT_SPLIT_DEPTH = 4;
+
+    //Attributes for class ParallelSolver.
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+
+    public ParallelSolver() {
+        this(ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH);
+    } // end of ParallelSolver()
+
+    public ParallelSolver(ForkJoinPool pool, int splitDepth) {
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    } // end of ParallelSolver()
+
+
+    @Override
+    public boolean solve(SudokuGrid grid)
+    {
+        stats.reset();
+        BitBoard board = grid instanceof KillerSudokuGrid
+            ? new BitBoard(grid, grid.getCageModel()) : new BitBoard(grid);
+        if (!new Propagator(board).propagate())
+        {
+            stats.add(board);
+            return false;
+        }
+
+        AtomicBoolean found = new AtomicBoolean();
+        AtomicReference<int[][]> solution = new AtomicReference<>();
+        board.setCancelled(found);
+        board.setLimits(limits);
+        pool.invoke(new SearchTask(board, 0, found, solution));
+
+        if (solution.get() == null)
+        {
+            return false;
+        }
+        grid.setGrid(solution.get());
+        return true;
+    } // end of solve()
+
+
+    @Override
+    public int countSolutions(SudokuGrid grid, int limit)
+    {
+        stats.reset();
+        BitBoard board = grid instanceof KillerSudokuGrid
+            ? new BitBoard(grid, grid.getCageModel()) : new BitBoard(grid);
+        if (!new Propagator(board).propagate())
+        {
+            stats.add(board);
+            return 0;
+        }
+
+        AtomicInteger total = new AtomicInteger();
+        pool.invoke(new CountTask(board, 0, limit, total));
+        return Math.min(total.get(), limit);
+    } // end of countSolutions()
+
+
+    @Override
+    //solutions are enumerated by one sequential search, a lazy iterator
+    //has only one path to follow at a time
+    public Iterator<int[][]> solutionIterator(SudokuGrid grid)
+    {
+        BitBoard board = grid instanceof KillerSudokuGrid
+            ? new BitBoard(grid, grid.getCageModel()) : new BitBoard(grid);
+        new Propagator(board).propagate();
+        return SolutionIterator.of(board);
+    } // end of solutionIterator()
+
+
+    /**
+     * One subtree of the search, rooted at its own copy of the board.
+     */
+    private class SearchTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final BitBoard board;
+        private final int depth;
+        private final AtomicBoolean found;
+        private final AtomicReference<int[][]> solution;
+
+        SearchTask(BitBoard board, int depth, AtomicBoolean found, AtomicReference<int[][]> solution)
+        {
+            this.board = board;
+            this.depth = depth;
+            this.found = found;
+            this.solution = solution;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (found.get())
+            {
+                stats.add(board);
+                return;
+            }
+            //deep enough, or nearly solved: finish the subtree sequentially
+            if (depth >= splitDepth || board.emptyCount <= board.size)
+            {
+                try
+                {
+                    if (board.search())
+                    {
+                        report();
+                    }
+                }
+                finally
+                {
+                    stats.add(board);
+                }
+                return;
+            }
+
+            int cell = board.selectCell();
+            long cand = board.candidates(cell);
+            List<SearchTask> children = new ArrayList<>();
+            while (cand != 0)
+            {
+                long bit = cand & -cand;
+                cand ^= bit;
+                BitBoard child = new BitBoard(board);
+                child.place(cell, Long.numberOfTrailingZeros(bit));
+                child.depth = child.maxDepth = depth + 1;
+                children.add(new SearchTask(child, depth + 1, found, solution));
+            }
+            //the split itself is one node of the tree
+            board.nodes++;
+            stats.add(board);
+            invokeAll(children);
+        }
+
+        //Method to publish this task's board as the solution and stop the others
+        private void report()
+        {
+            if (solution.compareAndSet(null, board.toGrid()))
+            {
+                found.set(true);
+            }
+        }
+    } // end of class SearchTask
+
+
+    /**
+     * One subtree of a solution count, adding its solutions to a shared total.
+     * Tasks starting after the total reached the limit do nothing.
+     */
+    private class CountTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final BitBoard board;
+        private final int depth;
+        private final int limit;
+        private final AtomicInteger total;
+
+        CountTask(BitBoard board, int depth, int limit, AtomicInteger total)
+        {
+            this.board = board;
+            this.depth = depth;
+            this.limit = limit;
+            this.total = total;
+        }
+
+        @Override
+        protected void compute()
+        {
+            int remaining = limit - total.get();
+            if (remaining <= 0)
+            {
+                stats.add(board);
+                return;
+            }
+            if (depth >= splitDepth || board.emptyCount <= board.size)
+            {
+                total.addAndGet(board.count(remaining));
+                stats.add(board);
+                return;
+            }
+
+            int cell = board.selectCell();
+            long cand = board.candidates(cell);
+            List<CountTask> children = new ArrayList<>();
+            while (cand != 0)
+            {
+                long bit = cand & -cand;
+                cand ^= bit;
+                BitBoard child = new BitBoard(board);
+                child.place(cell, Long.numberOfTrailingZeros(bit));
+                child.depth = child.maxDepth = depth + 1;
+                children.add(new CountTask(child, depth + 1, limit, total));
+            }
+            board.nodes++;
+            stats.add(board);
+            invokeAll(children);
+        }
+    } // end of class CountTask
+
+} // end of class ParallelSolver
@@ -0,0 +1,167 @@
+package solver;
+
+import grid.SudokuGrid;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * Solver which races several solvers on the same puzzle and takes the first
+ * answer, for both standard and Killer Sudoku.
+ *
+ * Which engine is fastest depends on the puzzle, so every member solves its
+ * own copy of the grid on its own thread.  The first member to find a
+ * solution, or to prove there is none, wins: the others are cancelled through
+ * their SearchLimits and stop at their next check, and the winner's grid and
+ * stats become this solver's.  The losers are waited for before solve()
+ * returns, so the members are free for the next puzzle; cancelled engines stop
+ * within SearchLimits.CHECK_INTERVAL nodes, which costs far less than the race
+ * saves.
+ *
+ * The limits given to solve(grid, limits) apply to every member: the deadline
+ * and cancellation are shared, but each member gets the whole node budget to
+ * itself, so the portfolio never gives up sooner than its best member alone.
+ * Like the other solvers, a portfolio solves one grid at a time.
+ */
+public class PortfolioSolver extends SudokuSolver
+{
+    //threads the members run on, daemons so an idle pool never keeps the JVM up
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "portfolio");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //Attributes for class PortfolioSolver.
+    private final List<SudokuSolver> members;
+    private final ExecutorService executor;
+    private SudokuSolver winner;
+
+    public PortfolioSolver(SudokuSolver... members) {
+        this(DEFAULT_EXECUTOR, Arrays.asList(members));
+    } // end of PortfolioSolver()
+
+    public PortfolioSolver(ExecutorService executor, List<SudokuSolver> members) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("a portfolio needs at least one solver");
+        }
+        this.executor = executor;
+        this.members = new ArrayList<>(members);
+    } // end of PortfolioSolver()
+
+
+    @Override
+    public boolean solve(SudokuGrid grid)
+    {
+        stats.reset();
+        winner = null;
+        int count = members.size();
+        SudokuGrid[] copies = new SudokuGrid[count];
+        SearchLimits[] memberLimits = new SearchLimits[count];
+        SolveOutcome[] outcomes = new SolveOutcome[count];
+        CompletionService<Integer> race = new ExecutorCompletionService<>(executor);
+        for (int x = 0; x < count; x++)
+        {
+            int member = x;
+            copies[x] = grid.copy();
+            memberLimits[x] = new SearchLimits(limits);
+            race.submit(() -> {
+                outcomes[member] = members.get(member).solve(copies[member], memberLimits[member]);
+                return member;
+            });
+        }
+
+        //the first member with an answer wins; every member is waited for, so
+        //none is still running when solve() returns
+        int first = -1;
+        boolean timedOut = false;
+        boolean interrupted = false;
+        RuntimeException failure = null;
+        for (int x = 0; x < count; x++)
+        {
+            try
+            {
+                int member = race.take().get();
+                if (outcomes[member] == SolveOutcome.TIMED_OUT)
+                {
+                    timedOut |= first < 0;
+                }
+                else if (first < 0)
+                {
+                    first = member;
+                    cancelAll(memberLimits);
+                }
+            }
+            catch (ExecutionException e)
+            {
+                failure = e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause()
+                    : new IllegalStateException(e.getCause());
+            }
+            catch (InterruptedException e)
+            {
+                //stop the race, but still wait for the members to wind down
+                interrupted = true;
+                cancelAll(memberLimits);
+                x--;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        if (first < 0)
+        {
+            if (failure != null && !timedOut && !interrupted)
+            {
+                throw failure;
+            }
+            throw new SearchTimeoutException("no solver of the portfolio finished");
+        }
+        winner = members.get(first);
+        stats.copyFrom(winner.getStats());
+        if (outcomes[first] != SolveOutcome.SOLVED)
+        {
+            return false;
+        }
+        grid.setGrid(copies[first].getGrid());
+        return true;
+    } // end of solve()
+
+    @Override
+    //a count has to run to the end whichever engine does it, so the first member counts
+    public int countSolutions(SudokuGrid grid, int limit)
+    {
+        int found = members.get(0).countSolutions(grid, limit);
+        stats.copyFrom(members.get(0).getStats());
+        return found;
+    } // end of countSolutions()
+
+    @Override
+    public Iterator<int[][]> solutionIterator(SudokuGrid grid)
+    {
+        return members.get(0).solutionIterator(grid);
+    } // end of solutionIterator()
+
+    //Method to stop every member still racing
+    private static void cancelAll(SearchLimits[] memberLimits)
+    {
+        for (SearchLimits member : memberLimits)
+        {
+            member.cancel();
+        }
+    }
+
+    //getter method which returns the member which won the last race, null if none did
+    public SudokuSolver getWinner() {
+        return winner;
+    }
+
+} // end of class PortfolioSolver
@@ -0,0 +1,256 @@
+package solver;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Constraint propagation on a BitBoard, run before the search starts.
+ *
+ * Repeatedly fills naked singles (a cell with one candidate left) and hidden
+ * singles (a symbol with one possible cell left in a row, column or box), and
+ * when neither applies removes locked candidates: a symbol whose candidates in
+ * a box all lie on one row or column cannot go elsewhere on that line, and
+ * vice versa.  Forced symbols are placed on the board itself; eliminations
+ * which do not force a cell are kept in this object's banned masks only.
+ */
+public class Propagator
+{
+    //unit tables shared by every propagator of a grid size
+    private static final ConcurrentHashMap<Integer, int[][]> UNITS = new ConcurrentHashMap<>();
+
+    //Attributes for class Propagator.
+    private final BitBoard board;
+    private final int size, boxSize;
+    //symbols removed from a cell's candidates by locked candidates
+    private final long[] banned;
+    //the cells of every row, column and box
+    private final int[][] units;
+
+    //Constructor which works on the given board
+    public Propagator(BitBoard board)
+    {
+        this.board = board;
+        size = board.size;
+        boxSize = board.boxSize;
+        banned = new long[board.cellCount];
+        units = UNITS.computeIfAbsent(size, key -> buildUnits(board));
+    }
+
+    //Method to list the cells of every row, then every column, then every box
+    private static int[][] buildUnits(BitBoard board)
+    {
+        int size = board.size;
+        int[][] units = new int[3 * size][size];
+        int[] fill = new int[3 * size];
+        for (int cell = 0; cell < board.cellCount; cell++)
+        {
+            int row = board.rowOf[cell], col = board.colOf[cell], box = board.boxOf[cell];
+            units[row][fill[row]++] = cell;
+            units[size + col][fill[size + col]++] = cell;
+            units[2 * size + box][fill[2 * size + box]++] = cell;
+        }
+        return units;
+    }
+
+    //Method to propagate until nothing changes, returns false (and marks the
+    //board inconsistent) on a contradiction
+    public boolean propagate()
+    {
+        if (board.consistent && !run())
+        {
+            board.consistent = false;
+        }
+        return board.consistent;
+    }
+
+    //Method to apply the rules in turn until none of them makes progress
+    private boolean run()
+    {
+        while (board.emptyCount > 0)
+        {
+            int progress = nakedSingles();
+            if (progress < 0)
+            {
+                return false;
+            }
+            if (progress > 0)
+            {
+                continue;
+            }
+            progress = hiddenSingles();
+            if (progress < 0)
+            {
+                return false;
+            }
+            if (progress > 0)
+            {
+                continue;
+            }
+            if (!lockedCandidates())
+            {
+                break;
+            }
+        }
+        return true;
+    }
+
+    //Method to get the candidates of a cell, minus the banned symbols
+    private long candidates(int cell)
+    {
+        return board.candidates(cell) & ~banned[cell];
+    }
+
+    //Method to fill every cell with a single candidate, returns the number
+    //of cells filled or -1 if a cell has no candidate
+    private int nakedSingles()
+    {
+        int filled = 0;
+        for (int cell = 0; cell < board.cellCount; cell++)
+        {
+            if (board.cells[cell] != 0)
+            {
+                continue;
+            }
+            long cand = candidates(cell);
+            if (cand == 0)
+            {
+                return -1;
+            }
+            if ((cand & (cand - 1)) == 0)
+            {
+                board.place(cell, Long.numberOfTrailingZeros(cand));
+                board.propagations++;
+                filled++;
+            }
+        }
+        return filled;
+    }
+
+    //Method to fill every symbol with a single cell left in a unit, returns
+    //the number of cells filled or -1 if a symbol has no cell left in a unit
+    private int hiddenSingles()
+    {
+        int filled = 0;
+        for (int[] unit : units)
+        {
+            long placed = 0, once = 0, twice = 0;
+            for (int cell : unit)
+            {
+                if (board.cells[cell] != 0)
+                {
+                    placed |= 1L << (board.cells[cell] - 1);
+                }
+                else
+                {
+                    long cand = candidates(cell);
+                    twice |= once & cand;
+                    once |= cand;
+                }
+            }
+            if ((placed | once) != board.fullMask)
+            {
+                return -1;
+            }
+            long hidden = once & ~twice;
+            for (int x = 0; hidden != 0 && x < unit.length; x++)
+            {
+                int cell = unit[x];
+                if (board.cells[cell] != 0)
+                {
+                    continue;
+                }
+                long bits = candidates(cell) & hidden;
+                if (bits == 0)
+                {
+                    continue;
+                }
+                if ((bits & (bits - 1)) != 0)
+                {
+                    //two symbols can only go in this one cell
+                    return -1;
+                }
+                board.place(cell, Long.numberOfTrailingZeros(bits));
+                board.propagations++;
+                hidden &= ~bits;
+                filled++;
+            }
+        }
+        return filled;
+    }
+
+    //Method to remove locked candidates from every box/line intersection,
+    //returns true if any candidate was removed
+    private boolean lockedCandidates()
+    {
+        boolean changed = false;
+        for (int line = 0; line < 2 * size; line++)
+        {
+            for (int seg = 0; seg < boxSize; seg++)
+            {
+                int box = line < size
+                    ? (line / boxSize) * boxSize + seg
+                    : seg * boxSize + (line - size) / boxSize;
+                int[] lineCells = units[line];
+                int[] boxCells = units[2 * size + box];
+
+                long inter = 0, lineRest = 0, boxRest = 0;
+                for (int cell : lineCells)
+                {
+                    if (board.cells[cell] == 0)
+                    {
+                        if (board.boxOf[cell] == box)
+                        {
+                            inter |= candidates(cell);
+                        }
+                        else
+                        {
+                            lineRest |= candidates(cell);
+                        }
+                    }
+                }
+                for (int cell : boxCells)
+                {
+                    if (board.cells[cell] == 0 && !onLine(cell, line))
+                    {
+                        boxRest |= candidates(cell);
+                    }
+                }
+
+                //symbols of the box confined to the line leave the rest of the line
+                long pointing = inter & ~boxRest & lineRest;
+                //symbols of the line confined to the box leave the rest of the box
+                long claiming = inter & ~lineRest & boxRest;
+                if (pointing != 0)
+                {
+                    for (int cell : lineCells)
+                    {
+                        if (board.cells[cell] == 0 && board.boxOf[cell] != box)
+                        {
+                            banned[cell] |= pointing;
+                        }
+                    }
+                    changed = true;
+                }
+                if (claiming != 0)
+                {
+                    for (int cell : boxCells)
+                    {
+                        if (board.cells[cell] == 0 && !onLine(cell, line))
+                        {
+                            banned[cell] |= claiming;
+                        }
+                    }
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    //Method to check if a cell lies on a row (0..size-1) or column (size..2*size-1)
+    private boolean onLine(int cell, int line)
+    {
+        return line < size ? board.rowOf[cell] == line : board.colOf[cell] == line - size;
+    }
+
+} // end of class Propagator
@@ -0,0 +1,190 @@
+package solver;
+
+import grid.StdSudokuGrid;
+import java.util.Random;
+
+
+/**
+ * Generator of standard Sudoku puzzles with a unique solution.
+ *
+ * A complete grid is produced by a randomised bitmask search on an empty
+ * board, then the clues are visited in random order and each is removed
+ * unless that would let the puzzle have a second solution.  Uniqueness is
+ * checked by placing every other candidate in the freed cell and searching a
+ * propagated copy of the board: the puzzle stays unique only if none of them
+ * leads to a solution.  The result is minimal, no clue can be removed, unless
+ * a check runs out of its node budget: the clue is then kept, which can only
+ * make the puzzle easier, never ambiguous.  Only large grids hit the budget.
+ *
+ * A generator keeps no state between puzzles except its empty board, so one
+ * instance per thread can generate any number of puzzles.
+ */
+public class PuzzleGenerator
+{
+    //Attributes for class PuzzleGenerator.
+    private final int size;
+    private final BitBoard emptyBoard;
+    //propagate at every node of the fills and uniqueness checks, not only at
+    //the root; an order of magnitude faster from 16x16 up, slower on 9x9
+    private final boolean deepPropagation;
+    //nodes the uniqueness check of a clue may visit before the clue is kept anyway
+    static final int CHECK_BUDGET = 200;
+    //nodes a random fill may visit before it is restarted
+    static final int FILL_BUDGET = 10000;
+    private int nodesLeft;
+
+    //Constructor for grids of the given size with the valid numbers 1..size
+    public PuzzleGenerator(int size)
+    {
+        int boxSize = (int)Math.sqrt(size);
+        if (boxSize * boxSize != size || size > 64)
+        {
+            throw new IllegalArgumentException("grid size must be a square of at most 64");
+        }
+        this.size = size;
+        deepPropagation = size > 9;
+        int[] validNumbers = new int[size];
+        for (int x = 0; x < size; x++)
+        {
+            validNumbers[x] = x + 1;
+        }
+        StdSudokuGrid grid = new StdSudokuGrid();
+        grid.initGrid(size, validNumbers);
+        emptyBoard = new BitBoard(grid);
+    }
+
+    //Method to generate a puzzle, the same random sequence gives the same puzzle
+    public int[][] generate(Random random)
+    {
+        //random fills have a heavy tail on large grids, so restart any fill
+        //which takes too long instead of waiting for it
+        BitBoard board = null;
+        while (board == null)
+        {
+            nodesLeft = FILL_BUDGET;
+            board = fillRandom(new BitBoard(emptyBoard), random);
+        }
+
+        int cellCount = board.cellCount;
+        int[] order = new int[cellCount];
+        for (int x = 0; x < cellCount; x++)
+        {
+            order[x] = x;
+        }
+        for (int x = cellCount - 1; x > 0; x--)
+        {
+            int y = random.nextInt(x + 1);
+            int tmp = order[x];
+            order[x] = order[y];
+            order[y] = tmp;
+        }
+
+        for (int cell : order)
+        {
+            int symbol = board.cells[cell] - 1;
+            board.remove(cell);
+            if (!isUnique(board, cell, symbol))
+            {
+                board.place(cell, symbol);
+            }
+        }
+        return board.toGrid();
+    }
+
+    //Recursive method to fill a copy of the board, propagating at every node
+    //on large grids and trying the candidates of the most constrained cell in random order,
+    //returns null if it fails or runs out of nodes
+    private BitBoard fillRandom(BitBoard board, Random random)
+    {
+        if (--nodesLeft < 0 || (deepPropagation && !new Propagator(board).propagate()))
+        {
+            return null;
+        }
+        if (board.emptyCount == 0)
+        {
+            return board;
+        }
+        int cell = board.selectCell();
+        long cand = board.candidates(cell);
+        while (cand != 0 && nodesLeft >= 0)
+        {
+            //pick a random remaining candidate
+            int pick = random.nextInt(Long.bitCount(cand));
+            long bit = cand;
+            for (int x = 0; x < pick; x++)
+            {
+                bit &= bit - 1;
+            }
+            bit &= -bit;
+            cand ^= bit;
+            BitBoard child = new BitBoard(board);
+            child.place(cell, Long.numberOfTrailingZeros(bit));
+            BitBoard full = fillRandom(child, random);
+            if (full != null)
+            {
+                return full;
+            }
+        }
+        return null;
+    }
+
+    //Method to check that the board, whose solution has symbol in the empty
+    //cell, has no solution with another symbol there
+    private boolean isUnique(BitBoard board, int cell, int symbol)
+    {
+        long others = board.candidates(cell) & ~(1L << symbol);
+        nodesLeft = CHECK_BUDGET;
+        while (others != 0)
+        {
+            long bit = others & -others;
+            others ^= bit;
+            BitBoard trial = new BitBoard(board);
+            trial.place(cell, Long.numberOfTrailingZeros(bit));
+            boolean solvable = deepPropagation ? isSolvable(trial)
+                : new Propagator(trial).propagate() && trial.search();
+            if (solvable)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Recursive method to check if a board has a solution, propagating at every
+    //node: most checks fail, and on large grids propagation proves that far
+    //sooner than plain search.  Answers true once the budget is spent
+    private boolean isSolvable(BitBoard board)
+    {
+        if (--nodesLeft < 0)
+        {
+            return true;
+        }
+        if (!new Propagator(board).propagate())
+        {
+            return false;
+        }
+        if (board.emptyCount == 0)
+        {
+            return true;
+        }
+        int cell = board.selectCell();
+        long cand = board.candidates(cell);
+        while (cand != 0)
+        {
+            long bit = cand & -cand;
+            cand ^= bit;
+            BitBoard child = new BitBoard(board);
+            child.place(cell, Long.numberOfTrailingZeros(bit));
+            if (isSolvable(child))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+} // end of class PuzzleGenerator
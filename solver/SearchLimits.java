@@ -0,0 +1,101 @@
+package solver;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Limits on one solve: a deadline, a budget of search nodes and a
+ * cancellation flag which another thread may raise with cancel().  Zero means
+ * no deadline or no budget.
+ *
+ * The search engines call tick() once every CHECK_INTERVAL nodes, so the
+ * check costs a mask test per node and a clock read per interval.  Once a
+ * limit is hit tick() throws SearchTimeoutException, which unwinds the search
+ * however deep it is; SudokuSolver.solve(grid, limits) turns it into
+ * SolveOutcome.TIMED_OUT.  The node count is shared, so every task of a
+ * parallel search draws on the same budget; it is drawn in whole intervals,
+ * so a budget is only honoured to the nearest CHECK_INTERVAL nodes.  Child
+ * limits, one per member of a portfolio, count their nodes apart but share
+ * the parent's deadline and cancellation.  A limits object is meant for one
+ * solve, since its deadline runs from construction.
+ */
+public class SearchLimits
+{
+    //nodes between two checks, a power of two
+    static final int CHECK_INTERVAL = 1024;
+    static final long CHECK_MASK = CHECK_INTERVAL - 1;
+
+    //Attributes for class SearchLimits.
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final long nodeBudget;
+    private final AtomicLong nodes = new AtomicLong();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    //limits this one narrows, checked as well, null for none
+    private final SearchLimits parent;
+
+    //Constructor with a timeout in milliseconds from now and a node budget, 0 for none
+    public SearchLimits(long timeoutMillis, long nodeBudget)
+    {
+        hasDeadline = timeoutMillis > 0;
+        deadline = System.nanoTime() + timeoutMillis * 1000000L;
+        this.nodeBudget = nodeBudget > 0 ? nodeBudget : Long.MAX_VALUE;
+        parent = null;
+    }
+
+    //Constructor for limits which can be cancelled on their own but also end
+    //when the parent is cancelled or its deadline passes, parent may be null.
+    //The node budget is the parent's but counted apart, so these nodes are
+    //not drawn from the parent's budget nor from that of its other children
+    SearchLimits(SearchLimits parent)
+    {
+        hasDeadline = false;
+        deadline = 0;
+        nodeBudget = parent != null ? parent.nodeBudget : Long.MAX_VALUE;
+        this.parent = parent;
+    }
+
+    //Method to stop the solve from any thread, it ends at its next check
+    public void cancel()
+    {
+        cancelled.set(true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    //Method called by an engine every CHECK_INTERVAL nodes, throws once a limit is hit
+    void tick()
+    {
+        if (cancelled.get())
+        {
+            throw new SearchTimeoutException("cancelled");
+        }
+        if (nodes.addAndGet(CHECK_INTERVAL) > nodeBudget)
+        {
+            throw new SearchTimeoutException("node budget of " + nodeBudget + " spent");
+        }
+        checkDeadline();
+    }
+
+    //Method to throw if this or a parent is cancelled or past its deadline,
+    //without spending any nodes
+    private void checkDeadline()
+    {
+        if (cancelled.get())
+        {
+            throw new SearchTimeoutException("cancelled");
+        }
+        if (hasDeadline && System.nanoTime() - deadline > 0)
+        {
+            throw new SearchTimeoutException("deadline passed");
+        }
+        if (parent != null)
+        {
+            parent.checkDeadline();
+        }
+    }
+
+} // end of class SearchLimits
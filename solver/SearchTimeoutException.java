@@ -0,0 +1,17 @@
+package solver;
+
+
+/**
+ * Thrown from inside a search when its SearchLimits are hit, to unwind the
+ * recursion in one step.  Caught by SudokuSolver.solve(grid, limits).
+ */
+public class SearchTimeoutException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    public SearchTimeoutException(String message)
+    {
+        super(message);
+    }
+
+} // end of class SearchTimeoutException
@@ -0,0 +1,73 @@
+package solver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Bounded LRU map from canonical puzzles to their canonical solutions, shared
+ * by any number of CachingSolvers and threads.  An empty solution records a
+ * puzzle without solutions.
+ */
+public class SolutionCache
+{
+    //Attributes for class SolutionCache.
+    private final int capacity;
+    private final LinkedHashMap<String, int[]> entries;
+    private long hits, misses;
+
+    //Constructor for a cache holding at most capacity puzzles
+    public SolutionCache(int capacity)
+    {
+        this.capacity = capacity;
+        entries = new LinkedHashMap<String, int[]>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest)
+            {
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+    }
+
+    //Method to look up a canonical puzzle, null if it is not cached
+    public synchronized int[] get(String key)
+    {
+        int[] solution = entries.get(key);
+        if (solution == null)
+        {
+            misses++;
+        }
+        else
+        {
+            hits++;
+        }
+        return solution;
+    }
+
+    //Method to cache the canonical solution of a canonical puzzle
+    public synchronized void put(String key, int[] solution)
+    {
+        if (capacity > 0)
+        {
+            entries.put(key, solution);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+} // end of class SolutionCache
@@ -0,0 +1,65 @@
+package solver;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Lazy iterator over the solutions of a grid.  The search engine behind it is
+ * suspended between solutions and resumed by hasNext(), so only the current
+ * search path is kept in memory however many solutions there are.  Every
+ * solution is returned as a new grid of values.
+ */
+abstract class SolutionIterator implements Iterator<int[][]>
+{
+    //Attributes for class SolutionIterator.
+    private boolean ready, done;
+
+    //Method to resume the search up to the next solution, false once exhausted
+    protected abstract boolean advance();
+
+    //Method to fetch the grid of the solution just found
+    protected abstract int[][] current();
+
+    @Override
+    public boolean hasNext()
+    {
+        if (!ready && !done)
+        {
+            ready = advance();
+            done = !ready;
+        }
+        return ready;
+    }
+
+    @Override
+    public int[][] next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        return current();
+    }
+
+    //Method to enumerate the solutions of a BitBoard from its current state
+    static SolutionIterator of(BitBoard board)
+    {
+        return new SolutionIterator()
+        {
+            @Override
+            protected boolean advance()
+            {
+                return board.nextSolution();
+            }
+
+            @Override
+            protected int[][] current()
+            {
+                return board.toGrid();
+            }
+        };
+    }
+
+} // end of class SolutionIterator
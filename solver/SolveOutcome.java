@@ -0,0 +1,16 @@
+package solver;
+
+
+/**
+ * Result of a solve under SearchLimits.
+ */
+public enum SolveOutcome
+{
+    //the grid holds a solution
+    SOLVED,
+    //the search finished without a solution
+    UNSOLVED,
+    //a deadline, node budget or cancellation stopped the search first
+    TIMED_OUT
+
+} // end of enum SolveOutcome
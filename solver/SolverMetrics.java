@@ -0,0 +1,182 @@
+package solver;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+
+/**
+ * Thread safe aggregate of many solves: per game and solver type, a latency
+ * histogram, a search node histogram and running totals of the SolverStats
+ * counters.  toPrometheus() renders them in the Prometheus text exposition
+ * format, so a batch run can leave a metrics file behind and the server can
+ * be scraped directly.
+ *
+ * Buckets are fixed and exponential, so recording a solve is a few atomic
+ * increments and never allocates once its series exists.
+ */
+public class SolverMetrics
+{
+    //upper bounds of the latency buckets, in seconds
+    static final double[] LATENCY_BOUNDS = {
+        0.00001, 0.00003, 0.0001, 0.0003, 0.001, 0.003, 0.01, 0.03, 0.1, 0.3, 1, 3, 10, 30};
+    //upper bounds of the search node buckets
+    static final double[] NODE_BOUNDS = {
+        1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000};
+
+    //Attributes for class SolverMetrics, series by their label set
+    private final Map<String, Series> series = new TreeMap<>();
+
+    //Method to record one solve of the given game and solver type
+    public void record(String gameType, String solverType, SolveOutcome outcome, long nanos, SolverStats stats)
+    {
+        Series s = seriesFor("game=\"" + gameType + "\",solver=\"" + solverType + "\"");
+        s.latency.observe(nanos / 1e9);
+        synchronized (stats)
+        {
+            s.nodeHistogram.observe(stats.nodes);
+            s.nodes.add(stats.nodes);
+            s.backtracks.add(stats.backtracks);
+            s.covers.add(stats.covers);
+            s.cageChecks.add(stats.cageChecks);
+            s.propagations.add(stats.propagations);
+            s.maxDepth.accumulateAndGet(stats.maxDepth, Math::max);
+        }
+        (outcome == SolveOutcome.SOLVED ? s.solved
+            : outcome == SolveOutcome.TIMED_OUT ? s.timedOut : s.unsolved).increment();
+    }
+
+    //Method to fetch the series of a label set, creating it on first use
+    private Series seriesFor(String labels)
+    {
+        synchronized (series)
+        {
+            return series.computeIfAbsent(labels, key -> new Series());
+        }
+    }
+
+    //Method to render every series in the Prometheus text format
+    public String toPrometheus()
+    {
+        Map<String, Series> snapshot;
+        synchronized (series)
+        {
+            snapshot = new TreeMap<>(series);
+        }
+        StringBuilder out = new StringBuilder();
+        header(out, "sudoku_solve_seconds", "histogram", "Wall clock time of a solve.");
+        snapshot.forEach((labels, s) -> s.latency.append(out, "sudoku_solve_seconds", labels));
+        header(out, "sudoku_solve_nodes", "histogram", "Search tree nodes visited by a solve.");
+        snapshot.forEach((labels, s) -> s.nodeHistogram.append(out, "sudoku_solve_nodes", labels));
+        counter(out, snapshot, "sudoku_solves_total", "Puzzles solved.", s -> s.solved);
+        counter(out, snapshot, "sudoku_unsolved_total", "Puzzles without a solution.", s -> s.unsolved);
+        counter(out, snapshot, "sudoku_timeouts_total", "Solves stopped by a deadline, node budget or cancellation.", s -> s.timedOut);
+        counter(out, snapshot, "sudoku_nodes_total", "Search tree nodes visited.", s -> s.nodes);
+        counter(out, snapshot, "sudoku_backtracks_total", "Choices undone after their subtree failed.", s -> s.backtracks);
+        counter(out, snapshot, "sudoku_covers_total", "Exact cover column cover and uncover operations.", s -> s.covers);
+        counter(out, snapshot, "sudoku_cage_checks_total", "Killer cage feasibility lookups.", s -> s.cageChecks);
+        counter(out, snapshot, "sudoku_propagations_total", "Cells filled by constraint propagation.", s -> s.propagations);
+        header(out, "sudoku_max_depth", "gauge", "Deepest search tree level reached by any solve.");
+        snapshot.forEach((labels, s) ->
+            out.append("sudoku_max_depth{").append(labels).append("} ").append(s.maxDepth.get()).append('\n'));
+        return out.toString();
+    }
+
+    //Method to write toPrometheus() to a file
+    public void writeTo(String filename) throws IOException
+    {
+        try (Writer out = new FileWriter(filename))
+        {
+            out.write(toPrometheus());
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help)
+    {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void counter(StringBuilder out, Map<String, Series> snapshot, String name, String help,
+            Function<Series, LongAdder> total)
+    {
+        header(out, name, "counter", help);
+        snapshot.forEach((labels, s) ->
+            out.append(name).append('{').append(labels).append("} ").append(total.apply(s).sum()).append('\n'));
+    }
+
+
+    /**
+     * Histograms and totals of one game and solver type.
+     */
+    private static class Series
+    {
+        final Histogram latency = new Histogram(LATENCY_BOUNDS);
+        final Histogram nodeHistogram = new Histogram(NODE_BOUNDS);
+        final LongAdder solved = new LongAdder(), unsolved = new LongAdder(), timedOut = new LongAdder();
+        final LongAdder nodes = new LongAdder(), backtracks = new LongAdder(), covers = new LongAdder();
+        final LongAdder cageChecks = new LongAdder(), propagations = new LongAdder();
+        final AtomicInteger maxDepth = new AtomicInteger();
+    } // end of class Series
+
+
+    /**
+     * Histogram with fixed bucket upper bounds, counts kept per bucket and
+     * made cumulative when rendered.
+     */
+    private static class Histogram
+    {
+        private final double[] bounds;
+        //counts[bounds.length] is the +Inf bucket
+        private final AtomicLongArray counts;
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        Histogram(double[] bounds)
+        {
+            this.bounds = bounds;
+            counts = new AtomicLongArray(bounds.length + 1);
+        }
+
+        void observe(double value)
+        {
+            int bucket = 0;
+            while (bucket < bounds.length && value > bounds[bucket])
+            {
+                bucket++;
+            }
+            counts.incrementAndGet(bucket);
+            count.increment();
+            sum.add(value);
+        }
+
+        void append(StringBuilder out, String name, String labels)
+        {
+            long cumulative = 0;
+            for (int x = 0; x <= bounds.length; x++)
+            {
+                cumulative += counts.get(x);
+                out.append(name).append("_bucket{").append(labels).append(",le=\"")
+                    .append(x < bounds.length ? format(bounds[x]) : "+Inf").append("\"} ")
+                    .append(cumulative).append('\n');
+            }
+            out.append(name).append("_sum{").append(labels).append("} ")
+                .append(format(sum.sum())).append('\n');
+            out.append(name).append("_count{").append(labels).append("} ").append(count.sum()).append('\n');
+        }
+
+        private static String format(double value)
+        {
+            return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+        }
+    } // end of class Histogram
+
+} // end of class SolverMetrics
@@ -0,0 +1,107 @@
+package solver;
+
+
+/**
+ * Work counters of one solve, filled in by the solver from the counters of its
+ * search engine.  Counters a solver has no notion of stay at zero: only the
+ * exact cover solvers cover columns, only Killer solvers check cages.
+ *
+ * nodes: search tree nodes entered.
+ * backtracks: choices undone after their subtree failed.
+ * covers: cover and uncover operations on exact cover columns.
+ * cageChecks: cage feasibility lookups.
+ * propagations: cells filled by constraint propagation rather than search.
+ * maxDepth: deepest search tree level reached.
+ */
+public class SolverStats
+{
+    //Attributes for class SolverStats.
+    long nodes, backtracks, covers, cageChecks, propagations;
+    int maxDepth;
+
+    //Method to zero every counter before a solve
+    public synchronized void reset()
+    {
+        nodes = backtracks = covers = cageChecks = propagations = 0;
+        maxDepth = 0;
+    }
+
+    //Method to add the counters of a bitmask board and its cage model
+    synchronized void add(BitBoard board)
+    {
+        nodes += board.nodes;
+        backtracks += board.backtracks;
+        propagations += board.propagations;
+        maxDepth = Math.max(maxDepth, board.maxDepth);
+        if (board.cages != null)
+        {
+            cageChecks += board.cages.checks;
+        }
+    }
+
+    //Method to add the counters of a dancing links matrix
+    synchronized void add(DancingLinks links)
+    {
+        nodes += links.nodes;
+        backtracks += links.backtracks;
+        covers += links.covers;
+        maxDepth = Math.max(maxDepth, links.maxDepth);
+    }
+
+    //Method to add the counters of a search kept outside an engine
+    synchronized void add(long nodes, long backtracks, long covers, long cageChecks, int maxDepth)
+    {
+        this.nodes += nodes;
+        this.backtracks += backtracks;
+        this.covers += covers;
+        this.cageChecks += cageChecks;
+        this.maxDepth = Math.max(this.maxDepth, maxDepth);
+    }
+
+    //Method to copy all counters of another stats object
+    public synchronized void copyFrom(SolverStats other)
+    {
+        synchronized (other)
+        {
+            nodes = other.nodes;
+            backtracks = other.backtracks;
+            covers = other.covers;
+            cageChecks = other.cageChecks;
+            propagations = other.propagations;
+            maxDepth = other.maxDepth;
+        }
+    }
+
+    public synchronized long getNodes() {
+        return nodes;
+    }
+
+    public synchronized long getBacktracks() {
+        return backtracks;
+    }
+
+    public synchronized long getCovers() {
+        return covers;
+    }
+
+    public synchronized long getCageChecks() {
+        return cageChecks;
+    }
+
+    public synchronized long getPropagations() {
+        return propagations;
+    }
+
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "nodes = " + nodes + ", backtracks = " + backtracks + ", covers = " + covers
+            + ", cage checks = " + cageChecks + ", propagations = " + propagations
+            + ", max depth = " + maxDepth;
+    }
+
+} // end of class SolverStats
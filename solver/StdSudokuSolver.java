@@ -4,6 +4,8 @@
 
 package solver;
 
+import grid.SudokuGrid;
+
 
 /**
  * Abstract class for common attributes or methods for solvers of standard
@@ -14,4 +16,40 @@ package solver;
 public abstract class StdSudokuSolver extends SudokuSolver
 {
 
+    /**
+     * Fills the cells forced by constraint propagation into a board of the
+     * grid's clues.  The grid itself is left unchanged, so a solve which
+     * fails or times out leaves the caller's clues as they were.
+     *
+     * @param grid Input grid.
+     *
+     * @return The propagated board, or null if the clues are contradictory.
+     */
+    protected BitBoard propagate(SudokuGrid grid)
+    {
+        BitBoard board = new BitBoard(grid);
+        if (!new Propagator(board).propagate())
+        {
+            return null;
+        }
+        return board;
+    } // end of propagate()
+
+
+    /**
+     * Copy of a grid holding its clues and the cells forced on a propagated
+     * board, so the solver only has to search the remaining cells.
+     *
+     * @param grid Input grid, not changed.
+     * @param board Board returned by propagate(grid).
+     *
+     * @return The copy, to be searched in place of grid.
+     */
+    protected SudokuGrid propagatedGrid(SudokuGrid grid, BitBoard board)
+    {
+        SudokuGrid work = grid.copy();
+        work.setGrid(board.toGrid());
+        return work;
+    } // end of propagatedGrid()
+
 } // end of class StdSudokuSolver
@@ -5,6 +5,11 @@
 package solver;
 
 import grid.SudokuGrid;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -12,6 +17,17 @@ import grid.SudokuGrid;
  */
 public abstract class SudokuSolver
 {
+    /**
+     * Work counters of the last solve() or countSolutions() call.
+     */
+    protected final SolverStats stats = new SolverStats();
+
+    /**
+     * Limits of the solve in progress, null when solve() is called without any.
+     * Solvers hand them to their search engines.
+     */
+    protected SearchLimits limits;
+
 
     /**
      * Solves the input grid.  Different solvers should override this to implement
@@ -24,4 +40,86 @@ public abstract class SudokuSolver
      */
     public abstract boolean solve(SudokuGrid grid);
 
+
+    /**
+     * Solves the input grid under a deadline, node budget or cancellation
+     * flag.  The search checks the limits every SearchLimits.CHECK_INTERVAL
+     * (1024) nodes and is abandoned at the first check after one of them is
+     * hit; the grid is then left unchanged.
+     *
+     * @param grid Input grid to solve.  The solver will write the solution to grid.
+     * @param limits Limits of this solve.
+     *
+     * @return SOLVED, UNSOLVED, or TIMED_OUT if a limit stopped the search.
+     */
+    public SolveOutcome solve(SudokuGrid grid, SearchLimits limits) {
+        this.limits = limits;
+        try {
+            return solve(grid) ? SolveOutcome.SOLVED : SolveOutcome.UNSOLVED;
+        }
+        catch (SearchTimeoutException e) {
+            return SolveOutcome.TIMED_OUT;
+        }
+        finally {
+            this.limits = null;
+        }
+    } // end of solve()
+
+
+    /**
+     * Counts the solutions of the input grid, stopping as soon as limit of them
+     * are found.  A limit of 2 is enough to tell if a puzzle has a unique
+     * solution.  The grid is left unchanged.
+     *
+     * @param grid Input grid to count the solutions of.
+     * @param limit Number of solutions after which the search stops.
+     *
+     * @return Number of solutions found, at most limit.
+     */
+    public int countSolutions(SudokuGrid grid, int limit) {
+        throw new UnsupportedOperationException("solution counting is not supported by "
+            + getClass().getSimpleName());
+    } // end of countSolutions()
+
+
+    /**
+     * Enumerates the solutions of the input grid lazily.  The search is
+     * suspended after each solution and resumed from where it stopped when the
+     * next one is asked for, so memory use does not grow with the number of
+     * solutions.  The grid is left unchanged.
+     *
+     * @param grid Input grid to enumerate the solutions of.
+     *
+     * @return Iterator over the solutions, each a new grid of values.
+     */
+    public Iterator<int[][]> solutionIterator(SudokuGrid grid) {
+        throw new UnsupportedOperationException("solution enumeration is not supported by "
+            + getClass().getSimpleName());
+    } // end of solutionIterator()
+
+
+    /**
+     * Sequential, ordered stream over the solutions of solutionIterator().
+     *
+     * @param grid Input grid to enumerate the solutions of.
+     *
+     * @return Lazy stream of the solutions, each a new grid of values.
+     */
+    public Stream<int[][]> solutions(SudokuGrid grid) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(solutionIterator(grid),
+            Spliterator.ORDERED | Spliterator.NONNULL), false);
+    } // end of solutions()
+
+
+    /**
+     * Returns the work counters of the last solve() or countSolutions() call:
+     * nodes, backtracks, cover operations, cage checks, propagated cells and
+     * maximum search depth.  The object is reused by the next call.
+     *
+     * @return Counters of the last call.
+     */
+    public SolverStats getStats() {
+        return stats;
+    } // end of getStats()
+
 } // end of class SudokuSolver